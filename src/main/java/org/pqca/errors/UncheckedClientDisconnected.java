@@ -0,0 +1,35 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2024 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.errors;
+
+import jakarta.annotation.Nonnull;
+
+// Carries a ClientDisconnected through APIs that cannot throw checked exceptions, such as
+// the module stream of an indexer
+public class UncheckedClientDisconnected extends RuntimeException {
+    public UncheckedClientDisconnected(@Nonnull ClientDisconnected cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized ClientDisconnected getCause() {
+        return (ClientDisconnected) super.getCause();
+    }
+}
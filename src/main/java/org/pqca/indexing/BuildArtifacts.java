@@ -0,0 +1,35 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.List;
+
+// The build outputs of a module that make up its classpath, as found while indexing:
+// directories of compiled classes and library jars
+public record BuildArtifacts(
+        @Nonnull List<Path> classDirectories, @Nonnull List<Path> libraries) {
+    public static final BuildArtifacts NONE = new BuildArtifacts(List.of(), List.of());
+
+    public boolean isEmpty() {
+        return classDirectories.isEmpty() && libraries.isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// What the indexer learns from reading a file once: the SHA-256 of its content, if asked
+// for, and its number of lines. Unreadable files have an empty hash and -1 lines.
+record ContentDigest(@Nonnull String contentHash, long lines) {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContentDigest.class);
+
+    @Nonnull
+    static ContentDigest of(@Nonnull LazyInputFile file, boolean hash) {
+        final ByteBuffer content;
+        try {
+            content =
+                    file.contentLoader() != null
+                            ? file.contentLoader().load()
+                            : SourceDecoder.read(file.path());
+        } catch (IOException iox) {
+            LOGGER.error("Could not read file {}: {}", file.path(), iox.getMessage());
+            return new ContentDigest("", -1);
+        }
+        final long lines = LineCounter.countLines(content);
+        if (!hash) {
+            return new ContentDigest("", lines);
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return new ContentDigest(HexFormat.of().formatHex(digest.digest()), lines);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+
+// A single entry of a directory listing. Directories carry the (possibly still running)
+// listing of their own content, files carry the attributes read while listing their parent
+// and, if they are not read from disk, the loader of their content.
+record DirectoryEntry(
+        @Nonnull Path path,
+        @Nonnull BasicFileAttributes attributes,
+        @Nullable Supplier<DirectoryListing> subdirectory,
+        @Nullable IContentLoader contentLoader) {
+
+    DirectoryEntry(
+            @Nonnull Path path,
+            @Nonnull BasicFileAttributes attributes,
+            @Nullable Supplier<DirectoryListing> subdirectory) {
+        this(path, attributes, subdirectory, null);
+    }
+
+    @Nonnull
+    String fileName() {
+        return path.getFileName().toString();
+    }
+
+    boolean isDirectory() {
+        return subdirectory != null;
+    }
+
+    @Nonnull
+    DirectoryListing listing() {
+        if (subdirectory == null) {
+            throw new IllegalStateException(path + " is not a directory");
+        }
+        return subdirectory.get();
+    }
+}
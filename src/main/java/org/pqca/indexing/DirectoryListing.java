@@ -0,0 +1,47 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.List;
+
+// The content of one directory, sorted by file name so that indexing results do not
+// depend on the order in which the file system (or the walker threads) return entries.
+record DirectoryListing(@Nonnull Path directory, @Nonnull List<DirectoryEntry> entries)
+        implements IDirectoryListing {
+
+    @Override
+    public boolean contains(@Nonnull String name) {
+        return entries.stream().anyMatch(entry -> entry.fileName().equals(name));
+    }
+
+    @Override
+    public boolean containsFile(@Nonnull String name) {
+        return entries.stream()
+                .anyMatch(entry -> !entry.isDirectory() && entry.fileName().equals(name));
+    }
+
+    @Override
+    public boolean containsDirectory(@Nonnull String name) {
+        return entries.stream()
+                .anyMatch(entry -> entry.isDirectory() && entry.fileName().equals(name));
+    }
+}
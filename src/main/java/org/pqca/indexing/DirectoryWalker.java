@@ -0,0 +1,251 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Lists a directory tree on a work-stealing pool. Every directory is opened exactly once;
+// the listing of a directory is returned as soon as it is read, while the listings of its
+// subdirectories are still being computed by other workers. Callers consume the tree in
+// entry order, which keeps the result deterministic.
+final class DirectoryWalker implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryWalker.class);
+
+    private static final Comparator<DirectoryEntry> BY_FILE_NAME =
+            Comparator.comparing(DirectoryEntry::fileName);
+
+    @Nonnull private final ForkJoinPool pool;
+    @Nonnull private final Predicate<Path> directoryFilter;
+    @Nonnull private Predicate<IDirectoryListing> skipFilter = listing -> false;
+    private boolean respectIgnoreFiles = false;
+    @Nonnull private SymbolicLinkPolicy symbolicLinkPolicy = SymbolicLinkPolicy.FOLLOW;
+    @Nonnull private Path realRoot = Path.of("");
+
+    DirectoryWalker(int parallelism, @Nonnull Predicate<Path> directoryFilter) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.directoryFilter = directoryFilter;
+    }
+
+    // Directories for which the filter holds are listed once, to inspect their content, and
+    // returned empty; the walked directory itself is never skipped
+    void setSkipFilter(@Nonnull Predicate<IDirectoryListing> skipFilter) {
+        this.skipFilter = skipFilter;
+    }
+
+    // Applies the .gitignore and .cbomignore files of every directory to its entries and
+    // passes them on to its subdirectories. Ignored entries are left out of the listing and
+    // ignored subtrees are never opened.
+    void setRespectIgnoreFiles(boolean respectIgnoreFiles) {
+        this.respectIgnoreFiles = respectIgnoreFiles;
+    }
+
+    void setSymbolicLinkPolicy(@Nonnull SymbolicLinkPolicy symbolicLinkPolicy) {
+        this.symbolicLinkPolicy = symbolicLinkPolicy;
+    }
+
+    @Nonnull
+    DirectoryListing walk(@Nonnull Path directory) {
+        Object rootKey = null;
+        try {
+            realRoot = directory.toRealPath();
+            rootKey = Files.readAttributes(directory, BasicFileAttributes.class).fileKey();
+        } catch (IOException iox) {
+            realRoot = directory.toAbsolutePath();
+        }
+        return pool.invoke(
+                new ListingTask(directory, IgnoreRules.NONE, new Ancestor(rootKey, null), true));
+    }
+
+    @Override
+    public void close() {
+        // listings of excluded subtrees may never be joined
+        pool.shutdownNow();
+    }
+
+    private final class ListingTask extends RecursiveTask<DirectoryListing> {
+        @Nonnull private final Path directory;
+        @Nonnull private final IgnoreRules ignoreRules;
+        @Nonnull private final Ancestor ancestors;
+        private final boolean root;
+
+        ListingTask(
+                @Nonnull Path directory,
+                @Nonnull IgnoreRules ignoreRules,
+                @Nonnull Ancestor ancestors,
+                boolean root) {
+            this.directory = directory;
+            this.ignoreRules = ignoreRules;
+            this.ancestors = ancestors;
+            this.root = root;
+        }
+
+        @Override
+        protected DirectoryListing compute() {
+            final Map<Path, BasicFileAttributes> content = new LinkedHashMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    final BasicFileAttributes attributes = readAttributes(path);
+                    if (attributes != null) {
+                        content.put(path, attributes);
+                    }
+                }
+            } catch (IOException iox) {
+                LOGGER.debug(iox.getLocalizedMessage());
+            }
+            if (!root && skipFilter.test(new ContentListing(directory, content))) {
+                return new DirectoryListing(directory, List.of());
+            }
+            final IgnoreRules rules = respectIgnoreFiles ? readIgnoreFiles(content) : ignoreRules;
+            final List<DirectoryEntry> entries = new ArrayList<>(content.size());
+            for (Map.Entry<Path, BasicFileAttributes> item : content.entrySet()) {
+                final Path path = item.getKey();
+                final BasicFileAttributes attributes = item.getValue();
+                if (rules.isIgnored(path, attributes.isDirectory())) {
+                    continue;
+                }
+                if (!attributes.isDirectory()) {
+                    entries.add(new DirectoryEntry(path, attributes, null));
+                } else if (ancestors.contains(attributes.fileKey())) {
+                    LOGGER.debug("Skipping directory cycle at {}", path);
+                } else if (directoryFilter.test(path)) {
+                    final ListingTask subdirectory =
+                            new ListingTask(
+                                    path,
+                                    rules,
+                                    new Ancestor(attributes.fileKey(), ancestors),
+                                    false);
+                    subdirectory.fork();
+                    entries.add(new DirectoryEntry(path, attributes, subdirectory::join));
+                } else {
+                    // still visible to module detection, but never opened
+                    final DirectoryListing empty = new DirectoryListing(path, List.of());
+                    entries.add(new DirectoryEntry(path, attributes, () -> empty));
+                }
+            }
+            entries.sort(BY_FILE_NAME);
+            return new DirectoryListing(directory, entries);
+        }
+
+        // Symbolic links are resolved according to the policy. Links to directories within
+        // the walked tree are dropped: the target is either listed under its own path or
+        // contains the link, and would be indexed twice or forever.
+        @Nullable private BasicFileAttributes readAttributes(@Nonnull Path path) {
+            try {
+                final BasicFileAttributes attributes =
+                        Files.readAttributes(
+                                path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (!attributes.isSymbolicLink()) {
+                    return attributes;
+                }
+                if (symbolicLinkPolicy == SymbolicLinkPolicy.SKIP) {
+                    return null;
+                }
+                final BasicFileAttributes target =
+                        Files.readAttributes(path, BasicFileAttributes.class);
+                if (target.isDirectory() && path.toRealPath().startsWith(realRoot)) {
+                    LOGGER.debug("Skipping link {} into the walked tree", path);
+                    return null;
+                }
+                return target;
+            } catch (IOException iox) {
+                // e.g. a dangling symbolic link
+                LOGGER.debug(iox.getLocalizedMessage());
+                return null;
+            }
+        }
+
+        @Nonnull
+        private IgnoreRules readIgnoreFiles(@Nonnull Map<Path, BasicFileAttributes> content) {
+            final List<String> lines = new ArrayList<>();
+            for (String fileName : IgnoreRules.FILE_NAMES) {
+                final Path ignoreFile = directory.resolve(fileName);
+                final BasicFileAttributes attributes = content.get(ignoreFile);
+                if (attributes == null || !attributes.isRegularFile()) {
+                    continue;
+                }
+                try {
+                    final String text = new String(Files.readAllBytes(ignoreFile), UTF_8);
+                    text.lines().forEach(lines::add);
+                } catch (IOException iox) {
+                    LOGGER.debug(iox.getLocalizedMessage());
+                }
+            }
+            return lines.isEmpty() ? ignoreRules : ignoreRules.withRules(directory, lines);
+        }
+    }
+
+    // The directories from the walked directory down to a subdirectory, identified by their
+    // file keys, to break cycles through links that leave the tree and lead back into it
+    private record Ancestor(@Nullable Object key, @Nullable Ancestor parent) {
+        boolean contains(@Nullable Object fileKey) {
+            if (fileKey == null) {
+                return false;
+            }
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (fileKey.equals(ancestor.key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // The names of a directory before its subdirectories are walked
+    private record ContentListing(
+            @Nonnull Path directory, @Nonnull Map<Path, BasicFileAttributes> content)
+            implements IDirectoryListing {
+
+        @Override
+        public boolean contains(@Nonnull String name) {
+            return content.containsKey(directory.resolve(name));
+        }
+
+        @Override
+        public boolean containsFile(@Nonnull String name) {
+            final BasicFileAttributes attributes = content.get(directory.resolve(name));
+            return attributes != null && !attributes.isDirectory();
+        }
+
+        @Override
+        public boolean containsDirectory(@Nonnull String name) {
+            final BasicFileAttributes attributes = content.get(directory.resolve(name));
+            return attributes != null && attributes.isDirectory();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// A git packfile with its version 2 index. The index is kept in memory; objects are read
+// from the pack with positional reads on one channel, which stays open until the pack is
+// closed, so loaders running on several threads can share it. Resolved delta bases are
+// cached: the files of a tree are often deltas of the same objects.
+final class GitPack implements AutoCloseable {
+    static final int OBJ_COMMIT = 1;
+    static final int OBJ_TREE = 2;
+    static final int OBJ_BLOB = 3;
+    static final int OBJ_TAG = 4;
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+
+    private static final int INDEX_MAGIC = 0xff744f63; // \377tOc
+    private static final int ID_LENGTH = 20;
+    private static final long BASE_CACHE_SIZE = 16 * 1024 * 1024;
+
+    record GitObject(int type, @Nonnull byte[] data) {}
+
+    @Nonnull private final Path packFile;
+    @Nonnull private final int[] fanout;
+    @Nonnull private final byte[] ids;
+    @Nonnull private final long[] offsets;
+    // least recently used first
+    @Nonnull private final Map<Long, GitObject> bases = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+    @Nullable private FileChannel channel;
+    private boolean closed;
+
+    GitPack(@Nonnull Path indexFile) throws IOException {
+        final String name = indexFile.getFileName().toString();
+        this.packFile =
+                indexFile.resolveSibling(
+                        name.substring(0, name.length() - ".idx".length()) + ".pack");
+        final ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        if (index.getInt() != INDEX_MAGIC || index.getInt() != 2) {
+            throw new IOException("Unsupported pack index " + indexFile);
+        }
+        this.fanout = new int[256];
+        for (int i = 0; i < fanout.length; i++) {
+            fanout[i] = index.getInt();
+        }
+        final int count = fanout[255];
+        this.ids = new byte[count * ID_LENGTH];
+        index.get(ids);
+        // skip the CRC32 checksums
+        index.position(index.position() + count * 4);
+        this.offsets = new long[count];
+        final int largeOffsets = index.position() + count * 4;
+        for (int i = 0; i < count; i++) {
+            final int offset = index.getInt();
+            if (offset < 0) {
+                // the index of the offset in the table of 64 bit offsets
+                offsets[i] = index.getLong(largeOffsets + (offset & 0x7fffffff) * 8);
+            } else {
+                offsets[i] = offset;
+            }
+        }
+    }
+
+    // -1 if the object is not in this pack
+    long offsetOf(@Nonnull byte[] id) {
+        final int first = id[0] & 0xff;
+        int low = first == 0 ? 0 : fanout[first - 1];
+        int high = fanout[first] - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison =
+                    Arrays.compareUnsigned(
+                            ids,
+                            middle * ID_LENGTH,
+                            (middle + 1) * ID_LENGTH,
+                            id,
+                            0,
+                            ID_LENGTH);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return offsets[middle];
+            }
+        }
+        return -1;
+    }
+
+    @Nonnull
+    GitObject read(long offset, @Nonnull GitRepository repository) throws IOException {
+        return withChannel(channel -> read(channel, offset, repository));
+    }
+
+    // The size of the object from its header; of a delta, only the header of the delta is
+    // inflated, its base is not resolved
+    long size(long offset) throws IOException {
+        return withChannel(
+                channel -> {
+                    final InputStream in = new ChannelInputStream(channel, offset);
+                    final int header = in.read();
+                    final int type = (header >> 4) & 7;
+                    final long size = readSize(in, header);
+                    if (type != OBJ_OFS_DELTA && type != OBJ_REF_DELTA) {
+                        return size;
+                    }
+                    skipBase(in, type);
+                    final Inflater inflater = new Inflater();
+                    try {
+                        final InputStream delta = new InflaterInputStream(in, inflater, 64);
+                        readVarint(delta); // size of the base
+                        return readVarint(delta);
+                    } finally {
+                        inflater.end();
+                    }
+                });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        synchronized (bases) {
+            bases.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    private interface ChannelReader<T> {
+        T read(@Nonnull FileChannel channel) throws IOException;
+    }
+
+    // A reader that is interrupted closes the shared channel; other readers open it again
+    private <T> T withChannel(@Nonnull ChannelReader<T> reader) throws IOException {
+        while (true) {
+            final FileChannel current = channel();
+            try {
+                return reader.read(current);
+            } catch (ClosedByInterruptException e) {
+                throw e;
+            } catch (ClosedChannelException e) {
+                synchronized (this) {
+                    if (closed) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    private synchronized FileChannel channel() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(packFile, StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    @Nonnull
+    private GitObject read(
+            @Nonnull FileChannel channel, long offset, @Nonnull GitRepository repository)
+            throws IOException {
+        final InputStream in = new ChannelInputStream(channel, offset);
+        final int header = in.read();
+        final int type = (header >> 4) & 7;
+        final long size = readSize(in, header);
+        final GitObject base;
+        if (type == OBJ_OFS_DELTA) {
+            base = readBase(channel, offset - readBaseOffset(in), repository);
+        } else if (type == OBJ_REF_DELTA) {
+            final byte[] baseId = in.readNBytes(ID_LENGTH);
+            final long baseOffset = offsetOf(baseId);
+            base =
+                    baseOffset >= 0
+                            ? readBase(channel, baseOffset, repository)
+                            : repository.read(baseId);
+        } else {
+            return new GitObject(type, inflate(in, size));
+        }
+        return new GitObject(base.type(), applyDelta(base.data(), inflate(in, size)));
+    }
+
+    @Nonnull
+    private GitObject readBase(
+            @Nonnull FileChannel channel, long offset, @Nonnull GitRepository repository)
+            throws IOException {
+        synchronized (bases) {
+            final GitObject cached = bases.get(offset);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final GitObject base = read(channel, offset, repository);
+        if (base.data().length <= BASE_CACHE_SIZE / 4) {
+            synchronized (bases) {
+                final GitObject previous = bases.put(offset, base);
+                cachedBytes += base.data().length - (previous != null ? previous.data().length : 0);
+                final Iterator<GitObject> eldest = bases.values().iterator();
+                while (cachedBytes > BASE_CACHE_SIZE && eldest.hasNext()) {
+                    cachedBytes -= eldest.next().data().length;
+                    eldest.remove();
+                }
+            }
+        }
+        return base;
+    }
+
+    @Nonnull
+    private static byte[] inflate(@Nonnull InputStream in, long size) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            final byte[] data =
+                    new InflaterInputStream(in, inflater, 8192).readNBytes(Math.toIntExact(size));
+            if (data.length != size) {
+                throw new IOException("Truncated object in pack");
+            }
+            return data;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long readSize(@Nonnull InputStream in, int header) throws IOException {
+        long size = header & 0x0f;
+        int shift = 4;
+        int c = header;
+        while ((c & 0x80) != 0) {
+            c = readByte(in);
+            size |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        }
+        return size;
+    }
+
+    private static long readBaseOffset(@Nonnull InputStream in) throws IOException {
+        int c = readByte(in);
+        long offset = c & 0x7f;
+        while ((c & 0x80) != 0) {
+            c = readByte(in);
+            offset = ((offset + 1) << 7) | (c & 0x7f);
+        }
+        return offset;
+    }
+
+    private static void skipBase(@Nonnull InputStream in, int type) throws IOException {
+        if (type == OBJ_OFS_DELTA) {
+            readBaseOffset(in);
+        } else {
+            in.readNBytes(ID_LENGTH);
+        }
+    }
+
+    private static long readVarint(@Nonnull InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = readByte(in);
+            value |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return value;
+    }
+
+    private static int readByte(@Nonnull InputStream in) throws IOException {
+        final int c = in.read();
+        if (c < 0) {
+            throw new IOException("Unexpected end of pack");
+        }
+        return c;
+    }
+
+    // Rebuilds an object from its base and a delta of copy and insert instructions
+    @Nonnull
+    static byte[] applyDelta(@Nonnull byte[] base, @Nonnull byte[] delta) throws IOException {
+        int position = 0;
+        long baseSize = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = delta[position++] & 0xff;
+            baseSize |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        long resultSize = 0;
+        shift = 0;
+        do {
+            c = delta[position++] & 0xff;
+            resultSize |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        if (baseSize != base.length) {
+            throw new IOException("Delta does not match its base object");
+        }
+        final byte[] result = new byte[Math.toIntExact(resultSize)];
+        int written = 0;
+        while (position < delta.length) {
+            final int instruction = delta[position++] & 0xff;
+            if ((instruction & 0x80) != 0) {
+                // copy from the base, offset and size bytes are present if their bit is set
+                int copyOffset = 0;
+                int copySize = 0;
+                for (int i = 0; i < 4; i++) {
+                    if ((instruction & (1 << i)) != 0) {
+                        copyOffset |= (delta[position++] & 0xff) << (8 * i);
+                    }
+                }
+                for (int i = 0; i < 3; i++) {
+                    if ((instruction & (0x10 << i)) != 0) {
+                        copySize |= (delta[position++] & 0xff) << (8 * i);
+                    }
+                }
+                if (copySize == 0) {
+                    copySize = 0x10000;
+                }
+                System.arraycopy(base, copyOffset, result, written, copySize);
+                written += copySize;
+            } else if (instruction != 0) {
+                // insert the next bytes of the delta
+                System.arraycopy(delta, position, result, written, instruction);
+                position += instruction;
+                written += instruction;
+            } else {
+                throw new IOException("Invalid delta instruction");
+            }
+        }
+        if (written != result.length) {
+            throw new IOException("Delta does not match its result size");
+        }
+        return result;
+    }
+
+    // Reads a channel from a position on without moving the channel's own position
+    private static final class ChannelInputStream extends InputStream {
+        @Nonnull private final FileChannel channel;
+        @Nonnull private final ByteBuffer buffer = ByteBuffer.allocate(8192).limit(0);
+        private long position;
+
+        ChannelInputStream(@Nonnull FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            buffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            position += read;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.InflaterInputStream;
+import org.pqca.indexing.GitPack.GitObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Read-only access to the object database of a local git repository: loose objects, packs
+// and alternates. Only what the indexer needs is supported, i.e. resolving a revision and
+// listing the tree of a commit. Repositories using SHA-256 object names are not supported.
+// The packs stay open until the repository is closed, since the content loaders of indexed
+// files read from them; close it after the modules were scanned.
+public final class GitRepository implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitRepository.class);
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{40}");
+    // "main~2", "v1.0^2", "HEAD^^"
+    private static final Pattern ANCESTRY = Pattern.compile("^(.+?)((?:[~^]\\d*)+)$");
+    private static final Pattern ANCESTRY_STEP = Pattern.compile("([~^])(\\d*)");
+    private static final Comparator<DirectoryEntry> BY_FILE_NAME =
+            Comparator.comparing(DirectoryEntry::fileName);
+
+    @Nonnull private final Path gitDirectory;
+    @Nonnull private final Path commonDirectory;
+    @Nonnull private final List<Path> objectDirectories = new ArrayList<>();
+    @Nonnull private final List<GitPack> packs = new ArrayList<>();
+
+    GitRepository(@Nonnull Path gitDirectory) throws IOException {
+        this.gitDirectory = gitDirectory;
+        // linked worktrees share the objects and refs of the main repository
+        final Path commonDir = gitDirectory.resolve("commondir");
+        this.commonDirectory =
+                Files.isRegularFile(commonDir)
+                        ? gitDirectory.resolve(Files.readString(commonDir).trim()).normalize()
+                        : gitDirectory;
+        addObjectDirectory(commonDirectory.resolve("objects"));
+    }
+
+    // The repository of a working copy, or a bare repository
+    @Nonnull
+    public static GitRepository open(@Nonnull Path directory) throws IOException {
+        return new GitRepository(findGitDirectory(directory));
+    }
+
+    @Override
+    public void close() {
+        for (GitPack pack : packs) {
+            try {
+                pack.close();
+            } catch (IOException iox) {
+                LOGGER.debug(iox.getLocalizedMessage());
+            }
+        }
+    }
+
+    // The git directory of a working copy, or the directory itself if it is a bare repository
+    @Nonnull
+    static Path findGitDirectory(@Nonnull Path directory) throws IOException {
+        final Path dotGit = directory.resolve(".git");
+        if (Files.isDirectory(dotGit)) {
+            return dotGit;
+        }
+        if (Files.isRegularFile(dotGit)) {
+            // a worktree or submodule: "gitdir: <path>"
+            final String content = Files.readString(dotGit).trim();
+            if (content.startsWith("gitdir:")) {
+                return directory.resolve(content.substring("gitdir:".length()).trim()).normalize();
+            }
+        }
+        if (Files.isRegularFile(directory.resolve("HEAD"))
+                && Files.isDirectory(directory.resolve("objects"))) {
+            return directory;
+        }
+        throw new IOException("Not a git repository: " + directory);
+    }
+
+    private void addObjectDirectory(@Nonnull Path objects) throws IOException {
+        if (objectDirectories.contains(objects) || !Files.isDirectory(objects)) {
+            return;
+        }
+        objectDirectories.add(objects);
+        final Path packDirectory = objects.resolve("pack");
+        if (Files.isDirectory(packDirectory)) {
+            final List<Path> indexFiles = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDirectory, "*.idx")) {
+                stream.forEach(indexFiles::add);
+            }
+            indexFiles.sort(Comparator.naturalOrder());
+            for (Path indexFile : indexFiles) {
+                packs.add(new GitPack(indexFile));
+            }
+        }
+        final Path alternates = objects.resolve("info/alternates");
+        if (Files.isRegularFile(alternates)) {
+            for (String line : Files.readAllLines(alternates)) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    addObjectDirectory(objects.resolve(line.trim()).normalize());
+                }
+            }
+        }
+    }
+
+    // Resolves a commit id or ref name, optionally followed by ~n and ^n ancestry steps, to the
+    // id of a commit. Annotated tags are peeled.
+    @Nonnull
+    String resolve(@Nonnull String revision) throws IOException {
+        final Matcher ancestry = ANCESTRY.matcher(revision);
+        if (!ancestry.matches()) {
+            return resolveName(revision);
+        }
+        String id = resolveName(ancestry.group(1));
+        final Matcher step = ANCESTRY_STEP.matcher(ancestry.group(2));
+        while (step.find()) {
+            final int n = step.group(2).isEmpty() ? 1 : Integer.parseInt(step.group(2));
+            if (step.group(1).equals("~")) {
+                for (int i = 0; i < n; i++) {
+                    id = parent(id, 1, revision);
+                }
+            } else if (n > 0) {
+                id = parent(id, n, revision);
+            }
+        }
+        return id;
+    }
+
+    @Nonnull
+    private String parent(@Nonnull String commitId, int n, @Nonnull String revision)
+            throws IOException {
+        final List<String> parents = headers(read(commitId), "parent");
+        if (parents.size() < n) {
+            throw new IOException("Unknown revision " + revision);
+        }
+        return parents.get(n - 1);
+    }
+
+    @Nonnull
+    private String resolveName(@Nonnull String revision) throws IOException {
+        String id = OBJECT_ID.matcher(revision).matches() ? revision : null;
+        for (String name :
+                List.of(
+                        revision,
+                        "refs/" + revision,
+                        "refs/tags/" + revision,
+                        "refs/heads/" + revision,
+                        "refs/remotes/" + revision,
+                        "refs/remotes/" + revision + "/HEAD")) {
+            if (id != null) {
+                break;
+            }
+            id = readRef(name, 0);
+        }
+        if (id == null) {
+            throw new IOException("Unknown revision " + revision);
+        }
+        GitObject object = read(id);
+        while (object.type() == GitPack.OBJ_TAG) {
+            id = header(object, "object");
+            object = read(id);
+        }
+        if (object.type() != GitPack.OBJ_COMMIT) {
+            throw new IOException(revision + " is not a commit");
+        }
+        return id;
+    }
+
+    @Nullable private String readRef(@Nonnull String name, int depth) throws IOException {
+        if (depth > 5) {
+            throw new IOException("Too many levels of symbolic refs at " + name);
+        }
+        // HEAD and other pseudo refs belong to the worktree, everything else is shared
+        final Path directory = name.startsWith("refs/") ? commonDirectory : gitDirectory;
+        String content;
+        try {
+            content = Files.readString(directory.resolve(name)).trim();
+        } catch (NoSuchFileException e) {
+            content = readPackedRef(name);
+        } catch (IOException e) {
+            // e.g. a directory of refs
+            return null;
+        }
+        if (content == null) {
+            return null;
+        }
+        if (content.startsWith("ref:")) {
+            return readRef(content.substring("ref:".length()).trim(), depth + 1);
+        }
+        return OBJECT_ID.matcher(content).matches() ? content : null;
+    }
+
+    @Nullable private String readPackedRef(@Nonnull String name) throws IOException {
+        final Path packedRefs = commonDirectory.resolve("packed-refs");
+        if (!Files.isRegularFile(packedRefs)) {
+            return null;
+        }
+        for (String line : Files.readAllLines(packedRefs)) {
+            // "<id> <name>", followed by "^<id>" lines for peeled tags
+            if (line.length() > 41 && line.charAt(40) == ' ' && line.substring(41).equals(name)) {
+                return line.substring(0, 40);
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    GitObject read(@Nonnull String id) throws IOException {
+        return read(HexFormat.of().parseHex(id));
+    }
+
+    @Nonnull
+    GitObject read(@Nonnull byte[] id) throws IOException {
+        for (GitPack pack : packs) {
+            final long offset = pack.offsetOf(id);
+            if (offset >= 0) {
+                return pack.read(offset, this);
+            }
+        }
+        final String hex = HexFormat.of().formatHex(id);
+        for (Path objects : objectDirectories) {
+            final Path file = objects.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+                    final String[] header = readLooseHeader(in);
+                    final int size = Integer.parseInt(header[1]);
+                    final byte[] data = in.readNBytes(size);
+                    if (data.length != size) {
+                        throw new IOException("Truncated object " + hex);
+                    }
+                    return new GitObject(typeOf(header[0]), data);
+                }
+            }
+        }
+        throw new IOException("Missing object " + hex);
+    }
+
+    long size(@Nonnull byte[] id) throws IOException {
+        for (GitPack pack : packs) {
+            final long offset = pack.offsetOf(id);
+            if (offset >= 0) {
+                return pack.size(offset);
+            }
+        }
+        final String hex = HexFormat.of().formatHex(id);
+        for (Path objects : objectDirectories) {
+            final Path file = objects.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+            if (Files.isRegularFile(file)) {
+                try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+                    return Long.parseLong(readLooseHeader(in)[1]);
+                }
+            }
+        }
+        throw new IOException("Missing object " + hex);
+    }
+
+    // "<type> <size>\0" at the start of an inflated loose object
+    @Nonnull
+    private static String[] readLooseHeader(@Nonnull InputStream in) throws IOException {
+        final StringBuilder header = new StringBuilder();
+        int c;
+        while ((c = in.read()) > 0) {
+            header.append((char) c);
+        }
+        final String[] parts = header.toString().split(" ");
+        if (c != 0 || parts.length != 2) {
+            throw new IOException("Invalid loose object header");
+        }
+        return parts;
+    }
+
+    private static int typeOf(@Nonnull String type) throws IOException {
+        return switch (type) {
+            case "commit" -> GitPack.OBJ_COMMIT;
+            case "tree" -> GitPack.OBJ_TREE;
+            case "blob" -> GitPack.OBJ_BLOB;
+            case "tag" -> GitPack.OBJ_TAG;
+            default -> throw new IOException("Unknown object type " + type);
+        };
+    }
+
+    // The value of the first header line of a commit or tag that starts with the key
+    @Nonnull
+    private static String header(@Nonnull GitObject object, @Nonnull String key)
+            throws IOException {
+        final List<String> values = headers(object, key);
+        if (values.isEmpty()) {
+            throw new IOException("Object without " + key);
+        }
+        return values.getFirst();
+    }
+
+    @Nonnull
+    private static List<String> headers(@Nonnull GitObject object, @Nonnull String key) {
+        final List<String> values = new ArrayList<>();
+        for (String line : new String(object.data(), UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                break;
+            }
+            if (line.startsWith(key + " ")) {
+                values.add(line.substring(key.length() + 1));
+            }
+        }
+        return values;
+    }
+
+    // Lists the tree of a commit as if it was checked out into the root directory. Files get
+    // the commit time as modification time; their sizes are only looked up when asked for.
+    @Nonnull
+    DirectoryListing listTree(
+            @Nonnull String commitId,
+            @Nonnull Path root,
+            @Nonnull Predicate<Path> directoryFilter)
+            throws IOException {
+        final GitObject commit = read(commitId);
+        final String committer = header(commit, "committer");
+        // "<name> <<email>> <seconds since the epoch> <time zone>"
+        final String[] parts = committer.split(" ");
+        final FileTime commitTime =
+                FileTime.fromMillis(Long.parseLong(parts[parts.length - 2]) * 1000);
+        return listTree(
+                HexFormat.of().parseHex(header(commit, "tree")),
+                root,
+                commitTime,
+                directoryFilter);
+    }
+
+    @Nonnull
+    private DirectoryListing listTree(
+            @Nonnull byte[] treeId,
+            @Nonnull Path directory,
+            @Nonnull FileTime commitTime,
+            @Nonnull Predicate<Path> directoryFilter)
+            throws IOException {
+        final GitObject tree = read(treeId);
+        if (tree.type() != GitPack.OBJ_TREE) {
+            throw new IOException("Not a tree: " + HexFormat.of().formatHex(treeId));
+        }
+        final List<DirectoryEntry> entries = new ArrayList<>();
+        final byte[] data = tree.data();
+        int position = 0;
+        while (position < data.length) {
+            // "<octal mode> <name>\0<20 byte id>"
+            final int space = indexOf(data, (byte) ' ', position);
+            final int nul = indexOf(data, (byte) 0, space);
+            final String mode = new String(data, position, space - position, UTF_8);
+            final String name = new String(data, space + 1, nul - space - 1, UTF_8);
+            final Path path = directory.resolve(name);
+            final byte[] id = Arrays.copyOfRange(data, nul + 1, nul + 21);
+            position = nul + 21;
+            if (mode.equals("40000")) {
+                final DirectoryListing listing =
+                        directoryFilter.test(path)
+                                ? listTree(id, path, commitTime, directoryFilter)
+                                : new DirectoryListing(path, List.of());
+                entries.add(
+                        new DirectoryEntry(
+                                path,
+                                new VirtualFileAttributes(true, () -> 0, commitTime),
+                                () -> listing));
+            } else if (mode.startsWith("100")) {
+                entries.add(
+                        new DirectoryEntry(
+                                path,
+                                new VirtualFileAttributes(false, () -> size(id, path), commitTime),
+                                null,
+                                () -> ByteBuffer.wrap(read(id).data())));
+            }
+            // symbolic links (120000) and submodules (160000) have no content to scan
+        }
+        entries.sort(BY_FILE_NAME);
+        return new DirectoryListing(directory, entries);
+    }
+
+    private long size(@Nonnull byte[] id, @Nonnull Path path) {
+        try {
+            return size(id);
+        } catch (IOException iox) {
+            throw new UncheckedIOException("Could not read " + path, iox);
+        }
+    }
+
+    private static int indexOf(@Nonnull byte[] data, byte value, int from) throws IOException {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        throw new IOException("Invalid tree object");
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.io.File;
+import java.nio.file.Path;
+
+// The names in a directory as seen by the indexer, which lets indexing services detect modules
+// without accessing the file system again, and in trees that are not on disk at all
+public interface IDirectoryListing {
+    @Nonnull
+    Path directory();
+
+    boolean contains(@Nonnull String name);
+
+    boolean containsFile(@Nonnull String name);
+
+    boolean containsDirectory(@Nonnull String name);
+
+    // Lists a directory of any file system; an unreadable or missing directory is empty
+    @Nonnull
+    static IDirectoryListing of(@Nonnull Path directory) {
+        return new PathDirectoryListing(directory);
+    }
+
+    @Nonnull
+    static IDirectoryListing of(@Nonnull File directory) {
+        return of(directory.toPath());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// The .gitignore and .cbomignore rules that apply to a directory, compiled once per ignore
+// file. Rules of deeper directories take precedence over those of their parents, and within
+// one directory the last matching rule wins, as in git.
+final class IgnoreRules {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IgnoreRules.class);
+    static final IgnoreRules NONE = new IgnoreRules(null, null, List.of());
+    static final List<String> FILE_NAMES = List.of(".gitignore", ".cbomignore");
+
+    private record Rule(@Nonnull Pattern pattern, boolean negated, boolean directoryOnly) {}
+
+    @Nullable private final IgnoreRules parent;
+    @Nullable private final Path directory;
+    @Nonnull private final List<Rule> rules;
+
+    private IgnoreRules(
+            @Nullable IgnoreRules parent, @Nullable Path directory, @Nonnull List<Rule> rules) {
+        this.parent = parent;
+        this.directory = directory;
+        this.rules = rules;
+    }
+
+    // Adds the rules of the ignore files of a directory
+    @Nonnull
+    IgnoreRules withRules(@Nonnull Path directory, @Nonnull List<String> lines) {
+        final List<Rule> compiled = new ArrayList<>();
+        for (String line : lines) {
+            final Rule rule = compile(line);
+            if (rule != null) {
+                compiled.add(rule);
+            }
+        }
+        return compiled.isEmpty() ? this : new IgnoreRules(this, directory, compiled);
+    }
+
+    // Adds the rules of the ignore files of a listing that is not read from disk, e.g. the
+    // tree of a git commit
+    @Nonnull
+    IgnoreRules withIgnoreFiles(@Nonnull DirectoryListing listing) {
+        final List<String> lines = new ArrayList<>();
+        for (String fileName : FILE_NAMES) {
+            for (DirectoryEntry entry : listing.entries()) {
+                if (entry.isDirectory()
+                        || entry.contentLoader() == null
+                        || !entry.fileName().equals(fileName)) {
+                    continue;
+                }
+                try {
+                    UTF_8.decode(entry.contentLoader().load())
+                            .toString()
+                            .lines()
+                            .forEach(lines::add);
+                } catch (IOException iox) {
+                    LOGGER.debug(iox.getLocalizedMessage());
+                }
+            }
+        }
+        return lines.isEmpty() ? this : withRules(listing.directory(), lines);
+    }
+
+    boolean isIgnored(@Nonnull Path path, boolean isDirectory) {
+        for (IgnoreRules level = this; level.directory != null; level = level.parent) {
+            if (!path.startsWith(level.directory)) {
+                continue;
+            }
+            final String relativePath =
+                    level.directory
+                            .relativize(path)
+                            .toString()
+                            .replace(path.getFileSystem().getSeparator(), "/");
+            for (int i = level.rules.size() - 1; i >= 0; i--) {
+                final Rule rule = level.rules.get(i);
+                if ((isDirectory || !rule.directoryOnly())
+                        && rule.pattern().matcher(relativePath).matches()) {
+                    return !rule.negated();
+                }
+            }
+        }
+        return false;
+    }
+
+    @Nullable private static Rule compile(@Nonnull String line) {
+        String glob = line.stripTrailing();
+        if (glob.isEmpty() || glob.startsWith("#")) {
+            return null;
+        }
+        final boolean negated = glob.startsWith("!");
+        if (negated || glob.startsWith("\\#") || glob.startsWith("\\!")) {
+            glob = glob.substring(1);
+        }
+        final boolean directoryOnly = glob.endsWith("/");
+        if (directoryOnly) {
+            glob = glob.substring(0, glob.length() - 1);
+        }
+        // a slash at the start or in the middle anchors the pattern at the ignore file
+        final boolean anchored = glob.contains("/");
+        if (glob.startsWith("/")) {
+            glob = glob.substring(1);
+        }
+        if (glob.isEmpty()) {
+            return null;
+        }
+        return new Rule(
+                Pattern.compile((anchored ? "" : "(?:.*/)?") + toRegex(glob)),
+                negated,
+                directoryOnly);
+    }
+
+    @Nonnull
+    private static String toRegex(@Nonnull String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            final char c = glob.charAt(i);
+            if (glob.startsWith("**/", i) && (i == 0 || glob.charAt(i - 1) == '/')) {
+                regex.append("(?:.*/)?");
+                i += 3;
+            } else if (glob.startsWith("**", i)) {
+                regex.append(".*");
+                i += 2;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+                i++;
+            } else if (c == '?') {
+                regex.append("[^/]");
+                i++;
+            } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                final int end = glob.indexOf(']', i + 2);
+                String characters = glob.substring(i + 1, end).replace("\\", "\\\\");
+                if (characters.startsWith("!")) {
+                    characters = "^" + characters.substring(1);
+                }
+                regex.append('[').append(characters.replace("[", "\\[")).append(']');
+                i = end + 1;
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(i + 1))));
+                i += 2;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                i++;
+            }
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+// Size, modification time, line count, content hash and module of every file of the previous
+// index run of a base directory. Files whose size and modification time did not change are not
+// read again; all others are hashed to tell changed files from files that were only touched.
+final class IndexManifest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexManifest.class);
+
+    private static final int MAGIC = 0x43424d49; // CBMI
+    private static final int VERSION = 2;
+
+    record Entry(
+            long size,
+            long lastModified,
+            long lines,
+            @Nonnull String contentHash,
+            @Nonnull String module) {}
+
+    @Nonnull private final String baseDirectory;
+    @Nonnull private final String languageIdentifier;
+    @Nonnull private final Map<String, Entry> previous;
+    @Nonnull private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private IndexManifest(
+            @Nonnull String baseDirectory,
+            @Nonnull String languageIdentifier,
+            @Nonnull Map<String, Entry> previous) {
+        this.baseDirectory = baseDirectory;
+        this.languageIdentifier = languageIdentifier;
+        this.previous = previous;
+    }
+
+    // Reads the manifest of a previous run. A missing, unreadable or foreign manifest (other
+    // base directory or language) results in an empty one, i.e. a full re-index.
+    @Nonnull
+    static IndexManifest load(
+            @Nonnull Path manifestFile,
+            @Nonnull Path baseDirectory,
+            @Nonnull String languageIdentifier) {
+        final String base = baseDirectory.toAbsolutePath().normalize().toString();
+        final Map<String, Entry> entries = new HashMap<>();
+        try (DataInputStream in =
+                new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported manifest format");
+            }
+            if (!in.readUTF().equals(base) || !in.readUTF().equals(languageIdentifier)) {
+                LOGGER.info("Manifest {} belongs to another index, re-indexing", manifestFile);
+                return new IndexManifest(base, languageIdentifier, Map.of());
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String relativePath = in.readUTF();
+                entries.put(
+                        relativePath,
+                        new Entry(
+                                in.readLong(),
+                                in.readLong(),
+                                in.readLong(),
+                                in.readUTF(),
+                                in.readUTF()));
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No manifest found at {}, indexing all files", manifestFile);
+        } catch (IOException iox) {
+            LOGGER.warn("Ignoring manifest {}: {}", manifestFile, iox.getMessage());
+            entries.clear();
+        }
+        return new IndexManifest(base, languageIdentifier, entries);
+    }
+
+    // Compares a file with the previous run, hashing it only if size or modification time
+    // differ, and records it for the next run.
+    @Nonnull
+    LazyInputFile track(
+            @Nonnull LazyInputFile file, @Nonnull String relativePath, @Nonnull String module) {
+        final Entry before = previous.get(relativePath);
+        final InputFile.Status status;
+        final String contentHash;
+        final long lines;
+        if (before != null
+                && before.size() == file.size()
+                && before.lastModified() == file.lastModified()) {
+            status = InputFile.Status.SAME;
+            contentHash = before.contentHash();
+            lines = before.lines();
+        } else {
+            // unreadable files get an empty hash: they are reported as changed and hashed
+            // again next time
+            final ContentDigest digest = ContentDigest.of(file, true);
+            contentHash = digest.contentHash();
+            lines = digest.lines();
+            if (before == null) {
+                status = InputFile.Status.ADDED;
+            } else if (before.contentHash().equals(contentHash)) {
+                status = InputFile.Status.SAME;
+            } else {
+                status = InputFile.Status.CHANGED;
+            }
+        }
+        current.put(
+                relativePath,
+                new Entry(file.size(), file.lastModified(), lines, contentHash, module));
+        return new LazyInputFile(
+                file.projectDirectory(),
+                file.path(),
+                file.size(),
+                lines,
+                file.lastModified(),
+                file.charset(),
+                file.language(),
+                status,
+                contentHash,
+                file.contentLoader());
+    }
+
+    // Relative paths of the files of the previous run that were not seen in this run,
+    // grouped by the module they belonged to
+    @Nonnull
+    Map<String, List<String>> deletedFiles() {
+        final Map<String, List<String>> deleted = new TreeMap<>();
+        previous.entrySet().stream()
+                .filter(entry -> !current.containsKey(entry.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(
+                        entry ->
+                                deleted.computeIfAbsent(
+                                                entry.getValue().module(),
+                                                module -> new ArrayList<>())
+                                        .add(entry.getKey()));
+        return deleted;
+    }
+
+    void write(@Nonnull Path manifestFile) throws IOException {
+        final Path parent = manifestFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporary = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(baseDirectory);
+            out.writeUTF(languageIdentifier);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(current).entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size());
+                out.writeLong(entry.getValue().lastModified());
+                out.writeLong(entry.getValue().lines());
+                out.writeUTF(entry.getValue().contentHash());
+                out.writeUTF(entry.getValue().module());
+            }
+        }
+        Files.move(temporary, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
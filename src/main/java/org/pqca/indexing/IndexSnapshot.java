@@ -0,0 +1,226 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.api.batch.fs.InputFile;
+
+// A binary copy of an index that can be loaded into project modules by another process on
+// the same host, e.g. to spread scanning over several worker JVMs. Files are stored by path,
+// relative to their module where possible, with their attributes and content hash. Files
+// that are not on disk (git blobs, archive entries) carry their content, since the loader
+// that reads them does not survive the process.
+public final class IndexSnapshot {
+    private static final int MAGIC = 0x43424d53; // CBMS
+    private static final int VERSION = 3;
+
+    private IndexSnapshot() {}
+
+    public static void write(@Nonnull List<ProjectModule> projectModules, @Nonnull Path file)
+            throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(projectModules.size());
+                for (ProjectModule module : projectModules) {
+                    writeModule(out, module);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // a failed write leaves the previous snapshot, if any, and no partial file behind
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    public static List<ProjectModule> read(@Nonnull Path file) throws IOException {
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not an index snapshot of this version");
+            }
+            final int count = in.readInt();
+            final List<ProjectModule> projectModules = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                projectModules.add(readModule(in));
+            }
+            return projectModules;
+        }
+    }
+
+    private static void writeModule(@Nonnull DataOutputStream out, @Nonnull ProjectModule module)
+            throws IOException {
+        final Path packagePath = module.packagePath();
+        out.writeUTF(module.identifier());
+        out.writeUTF(packagePath.toString());
+        out.writeInt(module.lazyInputFileList().size());
+        for (LazyInputFile file : module.lazyInputFileList()) {
+            writePath(out, packagePath, file.path());
+            out.writeBoolean(file.projectDirectory().equals(packagePath));
+            if (!file.projectDirectory().equals(packagePath)) {
+                out.writeUTF(file.projectDirectory().toString());
+            }
+            out.writeLong(file.size());
+            out.writeLong(file.lines());
+            out.writeLong(file.lastModified());
+            out.writeUTF(file.charset().name());
+            out.writeUTF(file.language());
+            writeNullable(out, file.status() == null ? null : file.status().name());
+            writeNullable(out, file.contentHash());
+            if (file.contentLoader() == null) {
+                out.writeInt(-1);
+            } else {
+                final ByteBuffer content = file.contentLoader().load();
+                out.writeInt(content.remaining());
+                if (content.hasArray()) {
+                    out.write(
+                            content.array(),
+                            content.arrayOffset() + content.position(),
+                            content.remaining());
+                } else {
+                    final byte[] bytes = new byte[content.remaining()];
+                    content.get(bytes);
+                    out.write(bytes);
+                }
+            }
+        }
+        writePaths(out, packagePath, module.deletedFiles());
+        writePaths(out, packagePath, module.buildArtifacts().classDirectories());
+        writePaths(out, packagePath, module.buildArtifacts().libraries());
+    }
+
+    @Nonnull
+    private static ProjectModule readModule(@Nonnull DataInputStream in) throws IOException {
+        final String identifier = in.readUTF();
+        final Path packagePath = Path.of(in.readUTF());
+        final int count = in.readInt();
+        final List<LazyInputFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Path path = readPath(in, packagePath);
+            final Path projectDirectory = in.readBoolean() ? packagePath : Path.of(in.readUTF());
+            final long size = in.readLong();
+            final long lines = in.readLong();
+            final long lastModified = in.readLong();
+            final Charset charset = Charset.forName(in.readUTF());
+            final String language = in.readUTF();
+            final String status = readNullable(in);
+            final String contentHash = readNullable(in);
+            final int contentLength = in.readInt();
+            IContentLoader contentLoader = null;
+            if (contentLength >= 0) {
+                final byte[] content = in.readNBytes(contentLength);
+                if (content.length < contentLength) {
+                    throw new IOException("Truncated index snapshot");
+                }
+                contentLoader = () -> ByteBuffer.wrap(content).asReadOnlyBuffer();
+            }
+            files.add(
+                    new LazyInputFile(
+                            projectDirectory,
+                            path,
+                            size,
+                            lines,
+                            lastModified,
+                            charset,
+                            language,
+                            status == null ? null : InputFile.Status.valueOf(status),
+                            contentHash,
+                            contentLoader));
+        }
+        final List<Path> deletedFiles = readPaths(in, packagePath);
+        final BuildArtifacts buildArtifacts =
+                new BuildArtifacts(readPaths(in, packagePath), readPaths(in, packagePath));
+        return new ProjectModule(identifier, packagePath, files, deletedFiles, buildArtifacts);
+    }
+
+    private static void writePaths(
+            @Nonnull DataOutputStream out, @Nonnull Path packagePath, @Nonnull List<Path> paths)
+            throws IOException {
+        out.writeInt(paths.size());
+        for (Path path : paths) {
+            writePath(out, packagePath, path);
+        }
+    }
+
+    @Nonnull
+    private static List<Path> readPaths(@Nonnull DataInputStream in, @Nonnull Path packagePath)
+            throws IOException {
+        final int count = in.readInt();
+        final List<Path> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(readPath(in, packagePath));
+        }
+        return paths;
+    }
+
+    // paths within the module are stored relative to it
+    private static void writePath(
+            @Nonnull DataOutputStream out, @Nonnull Path packagePath, @Nonnull Path path)
+            throws IOException {
+        final boolean relative = path.startsWith(packagePath);
+        out.writeBoolean(relative);
+        out.writeUTF(relative ? packagePath.relativize(path).toString() : path.toString());
+    }
+
+    @Nonnull
+    private static Path readPath(@Nonnull DataInputStream in, @Nonnull Path packagePath)
+            throws IOException {
+        return in.readBoolean() ? packagePath.resolve(in.readUTF()) : Path.of(in.readUTF());
+    }
+
+    private static void writeNullable(@Nonnull DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable private static String readNullable(@Nonnull DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
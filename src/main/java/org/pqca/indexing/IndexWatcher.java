@@ -0,0 +1,516 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.pqca.errors.ClientDisconnected;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+// Keeps the index of a base directory up to date while files are created, modified and
+// deleted. Every directory the indexer listed is registered with a WatchService; events are
+// collected until the tree has been quiet for a moment and then returned as a change set:
+// the modules with their added and changed files, flagged by their status, and their deleted
+// files, ready to be scanned. Source files in watched directories are updated one by one.
+// New or deleted directories, build files that make or unmake a module, ignore files and
+// lost events re-index the tree; the change set is then the difference of both indexes.
+public final class IndexWatcher implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexWatcher.class);
+
+    // whether the directory was a module when it was listed
+    private record WatchedDirectory(@Nonnull Path directory, boolean module) {}
+
+    @Nonnull private final IndexingService indexingService;
+    @Nonnull private final Path baseDirectory;
+    @Nonnull private final WatchService watchService;
+    @Nonnull private Map<Path, WatchKey> watchKeys = new HashMap<>();
+    @Nonnull private Map<WatchKey, WatchedDirectory> directories = new HashMap<>();
+    @Nonnull private Duration quietPeriod = Duration.ofMillis(200);
+    @Nonnull private volatile List<ProjectModule> projectModules = List.of();
+
+    IndexWatcher(@Nonnull IndexingService indexingService)
+            throws ClientDisconnected, IOException {
+        this.indexingService = indexingService;
+        this.baseDirectory = indexingService.getBaseDirectory();
+        this.watchService = baseDirectory.getFileSystem().newWatchService();
+        try {
+            reindex();
+        } catch (ClientDisconnected | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    // How long no events must arrive before the collected ones are applied
+    public void setQuietPeriod(@Nonnull Duration quietPeriod) {
+        this.quietPeriod = quietPeriod;
+    }
+
+    // The current index, with the files of the last change set applied
+    @Nonnull
+    public List<ProjectModule> getProjectModules() {
+        return projectModules;
+    }
+
+    // Waits up to the timeout for files to change and returns the changes once the tree is
+    // quiet again. Empty if nothing changed in time or the watcher was closed.
+    @Nonnull
+    public synchronized List<ProjectModule> awaitChanges(@Nonnull Duration timeout)
+            throws ClientDisconnected, InterruptedException {
+        final Set<Path> changedPaths = new LinkedHashSet<>();
+        boolean reindex = false;
+        try {
+            WatchKey key = watchService.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            while (key != null) {
+                reindex |= collect(key, changedPaths);
+                key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (ClosedWatchServiceException e) {
+            return List.of();
+        }
+        if (reindex) {
+            return reindex();
+        }
+        final List<ProjectModule> changes = update(changedPaths);
+        return changes != null ? changes : reindex();
+    }
+
+    // Returns whether the events call for re-indexing the tree
+    private boolean collect(@Nonnull WatchKey key, @Nonnull Set<Path> changedPaths) {
+        final WatchedDirectory watched = directories.get(key);
+        boolean reindex = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                LOGGER.debug("Lost file events, re-indexing {}", baseDirectory);
+                reindex = true;
+            } else if (watched != null) {
+                changedPaths.add(watched.directory().resolve((Path) event.context()));
+            }
+        }
+        // an invalid key belongs to a directory that was deleted or moved away
+        return !key.reset() || reindex;
+    }
+
+    // Applies the changes of source files; null if the tree must be re-indexed instead
+    @Nullable private List<ProjectModule> update(@Nonnull Set<Path> changedPaths) {
+        final Map<Path, LazyInputFile> changedFiles = new LinkedHashMap<>();
+        final Map<Path, Path> deletedFiles = new LinkedHashMap<>();
+        final Set<Path> checkedDirectories = new HashSet<>();
+        for (Path path : changedPaths) {
+            final Path parent = path.getParent();
+            final BasicFileAttributes attributes = readAttributes(path);
+            if (attributes != null && attributes.isDirectory()) {
+                // new directories are walked by re-indexing
+                if (!watchKeys.containsKey(path)
+                        && indexingService.listDirectory(path)
+                        && !isIgnored(path, true)) {
+                    return null;
+                }
+                continue;
+            }
+            if (watchKeys.containsKey(path)) {
+                // a watched directory was deleted or replaced by a file
+                return null;
+            }
+            if (indexingService.getRespectIgnoreFiles()
+                    && IgnoreRules.FILE_NAMES.contains(path.getFileName().toString())) {
+                return null;
+            }
+            final Path moduleDirectory = moduleDirectory(parent);
+            if (moduleDirectory != null && indexingService.isLibrary(moduleDirectory, path)) {
+                // build artifacts are collected by re-indexing
+                return null;
+            }
+            if (!indexingService.acceptsFile(path)) {
+                // e.g. a build file
+                if (checkedDirectories.add(parent) && hasChangedRole(parent)) {
+                    return null;
+                }
+                continue;
+            }
+            if (isIgnored(path, false)) {
+                continue;
+            }
+            if (moduleDirectory == null) {
+                if (projectModules.isEmpty()) {
+                    return null;
+                }
+                // not part of any module, as during indexing
+                continue;
+            }
+            if (attributes == null) {
+                changedFiles.remove(path);
+                deletedFiles.put(path, moduleDirectory);
+            } else {
+                deletedFiles.remove(path);
+                changedFiles.put(
+                        path,
+                        indexingService.digest(
+                                indexingService.inputFile(
+                                        moduleDirectory, path, attributes, null)));
+            }
+        }
+        return apply(changedFiles, deletedFiles);
+    }
+
+    @Nonnull
+    private List<ProjectModule> apply(
+            @Nonnull Map<Path, LazyInputFile> changedFiles,
+            @Nonnull Map<Path, Path> deletedFiles) {
+        final Map<String, ProjectModule> modules = new LinkedHashMap<>();
+        final Map<String, List<LazyInputFile>> files = new LinkedHashMap<>();
+        for (ProjectModule module : projectModules) {
+            modules.put(module.identifier(), module);
+            files.put(module.identifier(), new ArrayList<>(module.lazyInputFileList()));
+        }
+        final ChangeSet changeSet = new ChangeSet();
+        changedFiles.forEach(
+                (path, file) -> {
+                    final String identifier =
+                            indexingService.getProjectIdentifier(file.projectDirectory());
+                    final List<LazyInputFile> moduleFiles =
+                            files.computeIfAbsent(identifier, key -> new ArrayList<>());
+                    final int index = indexOf(moduleFiles, path);
+                    if (index < 0) {
+                        moduleFiles.add(file);
+                        changeSet.add(identifier, file, InputFile.Status.ADDED);
+                    } else {
+                        moduleFiles.set(index, file);
+                        changeSet.add(identifier, file, InputFile.Status.CHANGED);
+                    }
+                });
+        deletedFiles.forEach(
+                (path, moduleDirectory) -> {
+                    final String identifier = indexingService.getProjectIdentifier(moduleDirectory);
+                    final List<LazyInputFile> moduleFiles = files.get(identifier);
+                    final int index = moduleFiles == null ? -1 : indexOf(moduleFiles, path);
+                    if (index >= 0) {
+                        moduleFiles.remove(index);
+                        changeSet.delete(identifier, moduleDirectory, path);
+                    }
+                });
+        final List<ProjectModule> updated = new ArrayList<>(files.size());
+        files.forEach(
+                (identifier, moduleFiles) -> {
+                    if (moduleFiles.isEmpty()) {
+                        return;
+                    }
+                    final ProjectModule module = modules.get(identifier);
+                    updated.add(
+                            new ProjectModule(
+                                    identifier,
+                                    module != null
+                                            ? module.packagePath()
+                                            : moduleFiles.getFirst().projectDirectory(),
+                                    List.copyOf(moduleFiles),
+                                    List.of(),
+                                    module != null
+                                            ? module.buildArtifacts()
+                                            : BuildArtifacts.NONE));
+                });
+        projectModules = List.copyOf(updated);
+        return changeSet.projectModules(projectModules);
+    }
+
+    private static int indexOf(@Nonnull List<LazyInputFile> files, @Nonnull Path path) {
+        for (int i = 0; i < files.size(); i++) {
+            if (files.get(i).path().equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Nonnull
+    private List<ProjectModule> reindex() throws ClientDisconnected {
+        LOGGER.info("Re-indexing {}", baseDirectory);
+        final List<ProjectModule> before = projectModules;
+        final List<ProjectModule> after;
+        final Map<Path, WatchKey> keys = new HashMap<>();
+        final Map<WatchKey, WatchedDirectory> watched = new HashMap<>();
+        indexingService.clearSkippedDirectories();
+        try (DirectoryWalker walker = indexingService.newWalker()) {
+            final DirectoryListing tree = walker.walk(baseDirectory);
+            after = indexingService.indexWalkedTree(tree);
+            register(tree, Set.copyOf(indexingService.getSkippedDirectories()), keys, watched);
+        }
+        // directories that are no longer listed
+        watchKeys.forEach(
+                (directory, key) -> {
+                    if (!keys.containsKey(directory)) {
+                        key.cancel();
+                    }
+                });
+        watchKeys = keys;
+        directories = watched;
+        projectModules =
+                after.stream()
+                        .filter(module -> !module.lazyInputFileList().isEmpty())
+                        .map(
+                                module ->
+                                        new ProjectModule(
+                                                module.identifier(),
+                                                module.packagePath(),
+                                                module.lazyInputFileList(),
+                                                List.of(),
+                                                module.buildArtifacts()))
+                        .toList();
+        return difference(before, projectModules);
+    }
+
+    // Registers the listed directories of the tree; a key is reused if the directory was
+    // already watched, so that no events are lost while re-indexing
+    private void register(
+            @Nonnull DirectoryListing listing,
+            @Nonnull Set<Path> skippedDirectories,
+            @Nonnull Map<Path, WatchKey> keys,
+            @Nonnull Map<WatchKey, WatchedDirectory> watched) {
+        final Path directory = listing.directory();
+        try {
+            final WatchKey key =
+                    directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            keys.put(directory, key);
+            watched.put(key, new WatchedDirectory(directory, indexingService.isModule(listing)));
+        } catch (IOException iox) {
+            LOGGER.warn("Could not watch {}: {}", directory, iox.getMessage());
+        }
+        for (DirectoryEntry entry : listing.entries()) {
+            if (entry.isDirectory()
+                    && indexingService.listDirectory(entry.path())
+                    && !skippedDirectories.contains(entry.path())) {
+                register(entry.listing(), skippedDirectories, keys, watched);
+            }
+        }
+    }
+
+    @Nonnull
+    private static List<ProjectModule> difference(
+            @Nonnull List<ProjectModule> before, @Nonnull List<ProjectModule> after) {
+        final Map<Path, LazyInputFile> previousFiles = new HashMap<>();
+        final Map<Path, ProjectModule> previousModules = new HashMap<>();
+        for (ProjectModule module : before) {
+            for (LazyInputFile file : module.lazyInputFileList()) {
+                previousFiles.put(file.path(), file);
+                previousModules.put(file.path(), module);
+            }
+        }
+        final ChangeSet changeSet = new ChangeSet();
+        for (ProjectModule module : after) {
+            for (LazyInputFile file : module.lazyInputFileList()) {
+                final LazyInputFile previous = previousFiles.remove(file.path());
+                previousModules.remove(file.path());
+                if (previous == null) {
+                    changeSet.add(module.identifier(), file, InputFile.Status.ADDED);
+                } else if (previous.size() != file.size()
+                        || previous.lastModified() != file.lastModified()
+                        || !previous.projectDirectory().equals(file.projectDirectory())
+                        || (previous.contentHash() != null
+                                && file.contentHash() != null
+                                && !previous.contentHash().equals(file.contentHash()))) {
+                    changeSet.add(module.identifier(), file, InputFile.Status.CHANGED);
+                }
+            }
+        }
+        previousModules.forEach(
+                (path, module) ->
+                        changeSet.delete(module.identifier(), module.packagePath(), path));
+        return changeSet.projectModules(after);
+    }
+
+    // The module a file in the directory belongs to: the closest directory that is a module,
+    // or that holds a module of the index without being one
+    @Nullable private Path moduleDirectory(@Nonnull Path directory) {
+        final Set<Path> modulePaths = new HashSet<>();
+        projectModules.forEach(module -> modulePaths.add(module.packagePath()));
+        for (Path current = directory;
+                current != null && current.startsWith(baseDirectory);
+                current = current.getParent()) {
+            final WatchedDirectory watched = watched(current);
+            if (modulePaths.contains(current)
+                    || (watched != null
+                            && watched.module()
+                            && !indexingService.excludeFromIndexing(current))) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    // Whether a directory became a module or stopped being one, or turned into a dependency
+    // directory
+    private boolean hasChangedRole(@Nonnull Path directory) {
+        final WatchedDirectory watched = watched(directory);
+        if (watched == null) {
+            return false;
+        }
+        final IDirectoryListing listing = IDirectoryListing.of(directory);
+        return indexingService.isModule(listing) != watched.module()
+                || (!directory.equals(baseDirectory) && indexingService.skipsDirectory(listing));
+    }
+
+    @Nullable private WatchedDirectory watched(@Nonnull Path directory) {
+        final WatchKey key = watchKeys.get(directory);
+        return key == null ? null : directories.get(key);
+    }
+
+    // The ignore files are read again from the base directory down, as the walker would
+    private boolean isIgnored(@Nonnull Path path, boolean isDirectory) {
+        if (!indexingService.getRespectIgnoreFiles()) {
+            return false;
+        }
+        Path directory = baseDirectory;
+        IgnoreRules rules = withIgnoreFiles(IgnoreRules.NONE, directory);
+        if (!path.getParent().equals(baseDirectory)) {
+            for (Path name : baseDirectory.relativize(path.getParent())) {
+                directory = directory.resolve(name);
+                rules = withIgnoreFiles(rules, directory);
+            }
+        }
+        return rules.isIgnored(path, isDirectory);
+    }
+
+    @Nonnull
+    private static IgnoreRules withIgnoreFiles(
+            @Nonnull IgnoreRules rules, @Nonnull Path directory) {
+        final List<String> lines = new ArrayList<>();
+        for (String fileName : IgnoreRules.FILE_NAMES) {
+            final Path ignoreFile = directory.resolve(fileName);
+            if (Files.isRegularFile(ignoreFile)) {
+                try {
+                    new String(Files.readAllBytes(ignoreFile), UTF_8).lines().forEach(lines::add);
+                } catch (IOException iox) {
+                    LOGGER.debug(iox.getLocalizedMessage());
+                }
+            }
+        }
+        return lines.isEmpty() ? rules : rules.withRules(directory, lines);
+    }
+
+    // Null if the file does not exist (anymore) or is a link that is not followed
+    @Nullable private BasicFileAttributes readAttributes(@Nonnull Path path) {
+        try {
+            final BasicFileAttributes attributes =
+                    Files.readAttributes(
+                            path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isSymbolicLink()) {
+                return attributes;
+            }
+            if (indexingService.getSymbolicLinkPolicy() == SymbolicLinkPolicy.SKIP) {
+                return null;
+            }
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException iox) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    // The added, changed and deleted files by module
+    private static final class ChangeSet {
+        private record Module(
+                @Nonnull Path packagePath,
+                @Nonnull List<LazyInputFile> files,
+                @Nonnull List<Path> deletedFiles) {}
+
+        @Nonnull private final Map<String, Module> modules = new LinkedHashMap<>();
+
+        void add(
+                @Nonnull String identifier,
+                @Nonnull LazyInputFile file,
+                @Nonnull InputFile.Status status) {
+            module(identifier, file.projectDirectory())
+                    .files()
+                    .add(
+                            new LazyInputFile(
+                                    file.projectDirectory(),
+                                    file.path(),
+                                    file.size(),
+                                    file.lines(),
+                                    file.lastModified(),
+                                    file.charset(),
+                                    file.language(),
+                                    status,
+                                    file.contentHash(),
+                                    file.contentLoader()));
+        }
+
+        void delete(@Nonnull String identifier, @Nonnull Path packagePath, @Nonnull Path path) {
+            module(identifier, packagePath).deletedFiles().add(path);
+        }
+
+        @Nonnull
+        private Module module(@Nonnull String identifier, @Nonnull Path packagePath) {
+            return modules.computeIfAbsent(
+                    identifier,
+                    key -> new Module(packagePath, new ArrayList<>(), new ArrayList<>()));
+        }
+
+        // The changed modules carry the build artifacts of the current index
+        @Nonnull
+        List<ProjectModule> projectModules(@Nonnull List<ProjectModule> current) {
+            final Map<String, BuildArtifacts> buildArtifacts = new HashMap<>();
+            current.forEach(
+                    module -> buildArtifacts.put(module.identifier(), module.buildArtifacts()));
+            final List<ProjectModule> projectModules = new ArrayList<>(modules.size());
+            modules.forEach(
+                    (identifier, module) ->
+                            projectModules.add(
+                                    new ProjectModule(
+                                            identifier,
+                                            module.packagePath(),
+                                            List.copyOf(module.files()),
+                                            List.copyOf(module.deletedFiles()),
+                                            buildArtifacts.getOrDefault(
+                                                    identifier, BuildArtifacts.NONE))));
+            return projectModules;
+        }
+    }
+}
@@ -19,28 +19,35 @@
  */
 package org.pqca.indexing;
 
-import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.errors.UncheckedClientDisconnected;
 import org.pqca.progress.IProgressDispatcher;
 import org.pqca.progress.ProgressMessage;
 import org.pqca.progress.ProgressMessageType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 
 public abstract class IndexingService {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexingService.class);
@@ -48,23 +55,47 @@ public abstract class IndexingService {
     @Nullable private final IProgressDispatcher progressDispatcher;
     @Nonnull private final String languageIdentifier;
     @Nonnull private final String languageFileExtension;
-    @Nonnull private File baseDirectory;
+    @Nonnull private Path baseDirectory;
     @Nullable private IBuildType mainBuildType;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean respectIgnoreFiles = false;
+    private boolean skipDependencyDirectories = true;
+    @Nonnull private SymbolicLinkPolicy symbolicLinkPolicy = SymbolicLinkPolicy.FOLLOW;
+    private boolean fingerprintFiles = false;
+    private boolean countLines = false;
+    @Nullable private Set<Object> indexedFileKeys;
+    private int duplicateFiles;
+    @Nonnull private final Set<Path> skippedDirectories = ConcurrentHashMap.newKeySet();
+    @Nullable private Path manifestFile;
+    @Nullable private IndexManifest manifest;
 
-    private List<Pattern> excludePatterns = new ArrayList<Pattern>();
+    private List<String> excludePatterns = List.of();
+    private List<String> includePatterns = List.of();
+    @Nonnull private PathFilter pathFilter = new PathFilter(List.of(), List.of());
 
     protected IndexingService(
             @Nonnull File baseDirectory,
             @Nonnull String languageIdentifier,
             @Nonnull String languageFileExtension) {
-        this(null, baseDirectory, languageIdentifier, languageFileExtension);
+        this(null, baseDirectory.toPath(), languageIdentifier, languageFileExtension);
     }
 
     protected IndexingService(
-            @Nonnull IProgressDispatcher progressDispatcher,
+            @Nullable IProgressDispatcher progressDispatcher,
             @Nonnull File baseDirectory,
             @Nonnull String languageIdentifier,
             @Nonnull String languageFileExtension) {
+        this(progressDispatcher, baseDirectory.toPath(), languageIdentifier, languageFileExtension);
+    }
+
+    // The base directory may be on any file system, e.g. a zip or an in-memory file system.
+    // Only modules on the default file system can be scanned though; archives are scanned by
+    // indexing them with indexArchive or indexTarball.
+    protected IndexingService(
+            @Nullable IProgressDispatcher progressDispatcher,
+            @Nonnull Path baseDirectory,
+            @Nonnull String languageIdentifier,
+            @Nonnull String languageFileExtension) {
         this.progressDispatcher = progressDispatcher;
         this.baseDirectory = baseDirectory;
         this.languageIdentifier = languageIdentifier;
@@ -72,66 +103,462 @@ public abstract class IndexingService {
     }
 
     public void setExcludePatterns(@Nonnull List<String> excludePatterns) {
-        this.excludePatterns =
-                excludePatterns.stream().map(pattern -> Pattern.compile(pattern)).toList();
+        this.excludePatterns = List.copyOf(excludePatterns);
+        this.pathFilter = new PathFilter(this.excludePatterns, this.includePatterns);
+    }
+
+    // Only files matching at least one of the patterns are indexed; all files if empty
+    public void setIncludePatterns(@Nonnull List<String> includePatterns) {
+        this.includePatterns = List.copyOf(includePatterns);
+        this.pathFilter = new PathFilter(this.excludePatterns, this.includePatterns);
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Skips files and directories matched by the .gitignore and .cbomignore files of the
+    // directory tree. Ignored directories are not walked at all.
+    public void setRespectIgnoreFiles(boolean respectIgnoreFiles) {
+        this.respectIgnoreFiles = respectIgnoreFiles;
+    }
+
+    // Links are followed by default. Links that lead back into the tree are never followed,
+    // and a file reachable under several paths is indexed at the first path only.
+    public void setSymbolicLinkPolicy(@Nonnull SymbolicLinkPolicy symbolicLinkPolicy) {
+        this.symbolicLinkPolicy = symbolicLinkPolicy;
+    }
+
+    // Hashes the content of every file while indexing, in parallel, so that scanners can
+    // recognize identical files without reading them; they do not look for identical files
+    // otherwise. Files indexed against a manifest are always hashed.
+    public void setFingerprintFiles(boolean fingerprintFiles) {
+        this.fingerprintFiles = fingerprintFiles;
+    }
+
+    // Counts the lines of every file while indexing, in parallel, for the scan statistics.
+    // Off by default, as it reads every file an extra time: scanners count the lines of the
+    // files they decode anyway.
+    public void setCountLines(boolean countLines) {
+        this.countLines = countLines;
+    }
+
+    // Directories of installed dependencies, such as virtual environments, contain third-party
+    // code that is not part of the project. They are skipped during the walk unless disabled.
+    public void setSkipDependencyDirectories(boolean skipDependencyDirectories) {
+        this.skipDependencyDirectories = skipDependencyDirectories;
+    }
+
+    // The dependency directories skipped by the last run. Their content is never walked.
+    @Nonnull
+    public List<Path> getSkippedDirectories() {
+        return skippedDirectories.stream().sorted().toList();
+    }
+
+    // Keeps an index manifest of the base directory in the given file. Files that did not
+    // change since the previous run are not read again, and the returned modules flag files
+    // as added, changed or deleted.
+    public void setManifestFile(@Nullable Path manifestFile) {
+        this.manifestFile = manifestFile;
     }
 
     @Nonnull
     public List<ProjectModule> index(@Nullable Path packageFolder) throws ClientDisconnected {
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        return addDeletedFiles(projectModules, index(packageFolder, projectModules, null));
+    }
+
+    // Indexes on a background thread and returns the modules while they are found, so that
+    // scanning can start before the whole tree is walked. Modules are returned in the same
+    // order as by index(). With a manifest, modules are returned before deletions are known;
+    // deleted files follow at the end in modules without input files.
+    // A ClientDisconnected of the progress dispatcher is thrown as UncheckedClientDisconnected
+    // by the stream. Closing the stream stops the indexing.
+    @Nonnull
+    public Stream<ProjectModule> indexAsStream(@Nullable Path packageFolder) {
+        final ModulePipe pipe = new ModulePipe();
+        Thread.ofPlatform()
+                .daemon()
+                .name("index-" + languageIdentifier)
+                .start(
+                        () -> {
+                            try {
+                                final Map<String, List<String>> deletedFiles =
+                                        index(packageFolder, new ArrayList<>(), pipe);
+                                addDeletedFiles(List.of(), deletedFiles).forEach(pipe);
+                                pipe.complete();
+                            } catch (CancellationException e) {
+                                LOGGER.debug("Indexing cancelled");
+                            } catch (ClientDisconnected e) {
+                                pipe.fail(new UncheckedClientDisconnected(e));
+                            } catch (RuntimeException e) {
+                                pipe.fail(e);
+                            } catch (Error e) {
+                                pipe.fail(new IllegalStateException("Indexing failed", e));
+                                throw e;
+                            }
+                        });
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                pipe, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(pipe::close);
+    }
+
+    // Indexes the tree of a commit of a git repository (a working copy or a bare mirror of the
+    // base directory) straight from its object database, without a checkout. The revision
+    // is a commit id or a ref name such as "HEAD", "main" or "v1.2.0". Files are placed at the
+    // paths they would have in a checkout of the base directory, and are read from the
+    // repository; close it after the modules were scanned.
+    @Nonnull
+    public List<ProjectModule> indexRevision(
+            @Nonnull GitRepository repository, @Nonnull String revision)
+            throws ClientDisconnected, IOException {
+        final String commit = repository.resolve(revision);
+        if (this.progressDispatcher != null) {
+            this.progressDispatcher.send(
+                    new ProgressMessage(
+                            ProgressMessageType.LABEL,
+                            "Indexing projects at revision " + revision + " ..."));
+        }
+        LOGGER.info("Indexing projects at revision {} ({}) ...", revision, commit);
+        skippedDirectories.clear();
+        final DirectoryListing tree =
+                filterTree(
+                        repository.listTree(commit, baseDirectory, this::listDirectory),
+                        IgnoreRules.NONE);
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        return addDeletedFiles(projectModules, indexTree(tree, projectModules));
+    }
+
+    // Indexes the entries of a zip, jar or wheel as if the archive was extracted into the
+    // base directory. Module detection and file contents are served from the archive.
+    @Nonnull
+    public List<ProjectModule> indexArchive(@Nonnull SourceArchive archive)
+            throws ClientDisconnected {
+        if (this.progressDispatcher != null) {
+            this.progressDispatcher.send(
+                    new ProgressMessage(
+                            ProgressMessageType.LABEL,
+                            "Indexing projects in " + archive.archive().getFileName() + " ..."));
+        }
+        LOGGER.info("Indexing projects in {} ...", archive.archive());
+        skippedDirectories.clear();
+        final DirectoryListing tree;
+        try (DirectoryWalker walker =
+                newWalker(
+                        directory ->
+                                listDirectory(archive.extractedPath(directory, baseDirectory)),
+                        listing ->
+                                skipDirectory(
+                                        listing,
+                                        archive.extractedPath(
+                                                listing.directory(), baseDirectory)))) {
+            tree = archive.extractedListing(walker.walk(archive.root()), baseDirectory);
+        }
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        return addDeletedFiles(projectModules, indexTree(tree, projectModules));
+    }
+
+    // Indexes a tar or tar.gz archive that was read into memory, as if it was extracted into
+    // the base directory
+    @Nonnull
+    public List<ProjectModule> indexTarball(@Nonnull SourceTarball tarball)
+            throws ClientDisconnected {
+        if (this.progressDispatcher != null) {
+            this.progressDispatcher.send(
+                    new ProgressMessage(
+                            ProgressMessageType.LABEL,
+                            "Indexing projects in " + tarball.archive().getFileName() + " ..."));
+        }
+        LOGGER.info("Indexing projects in {} ...", tarball.archive());
+        skippedDirectories.clear();
+        final DirectoryListing tree =
+                filterTree(tarball.listing(baseDirectory, this::listDirectory), IgnoreRules.NONE);
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        return addDeletedFiles(projectModules, indexTree(tree, projectModules));
+    }
+
+    // Indexes the base directory and keeps the index up to date while files change, until the
+    // returned watcher is closed
+    @Nonnull
+    public IndexWatcher watch() throws ClientDisconnected, IOException {
+        return new IndexWatcher(this);
+    }
+
+    // Returns the files deleted since the last run by module, if indexing against a manifest.
+    // The consumer, if any, gets every module as soon as it is found.
+    @Nonnull
+    private Map<String, List<String>> index(
+            @Nullable Path packageFolder,
+            @Nonnull List<ProjectModule> projectModules,
+            @Nullable Consumer<ProjectModule> moduleConsumer)
+            throws ClientDisconnected {
         Optional.ofNullable(packageFolder)
-                .ifPresent(path -> baseDirectory = baseDirectory.toPath().resolve(path).toFile());
+                .ifPresent(path -> baseDirectory = baseDirectory.resolve(path));
         if (this.progressDispatcher != null) {
             this.progressDispatcher.send(
                     new ProgressMessage(ProgressMessageType.LABEL, "Indexing projects ..."));
         }
         LOGGER.info("Indexing projects ...");
+        skippedDirectories.clear();
+        try (DirectoryWalker walker = newWalker()) {
+            return indexTree(walker.walk(baseDirectory), projectModules, moduleConsumer);
+        }
+    }
+
+    // Indexes a tree walked by newWalker() from the base directory
+    @Nonnull
+    List<ProjectModule> indexWalkedTree(@Nonnull DirectoryListing tree)
+            throws ClientDisconnected {
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        return addDeletedFiles(projectModules, indexTree(tree, projectModules));
+    }
+
+    // Indexes a tree that was walked for several indexing services at once, as this service
+    // would have walked it
+    @Nonnull
+    List<ProjectModule> indexSharedTree(@Nonnull DirectoryListing tree) throws ClientDisconnected {
         final List<ProjectModule> projectModules = new ArrayList<>();
-        detectModules(baseDirectory, projectModules);
-        return projectModules;
+        return addDeletedFiles(projectModules, indexTree(view(tree), projectModules));
+    }
+
+    void clearSkippedDirectories() {
+        skippedDirectories.clear();
+    }
+
+    // Trees that are not walked from disk (git commits, tarballs) are filtered as the walker
+    // would have: ignored entries are left out, dependency directories appear empty
+    @Nonnull
+    private DirectoryListing filterTree(
+            @Nonnull DirectoryListing listing, @Nonnull IgnoreRules ignoreRules) {
+        final IgnoreRules rules =
+                respectIgnoreFiles ? ignoreRules.withIgnoreFiles(listing) : ignoreRules;
+        final List<DirectoryEntry> entries = new ArrayList<>(listing.entries().size());
+        for (DirectoryEntry entry : listing.entries()) {
+            final Path path = entry.path();
+            if (rules.isIgnored(path, entry.isDirectory())) {
+                continue;
+            }
+            if (!entry.isDirectory()) {
+                entries.add(entry);
+                continue;
+            }
+            final DirectoryListing subdirectory =
+                    skipDirectory(entry.listing(), path)
+                            ? new DirectoryListing(path, List.of())
+                            : filterTree(entry.listing(), rules);
+            entries.add(new DirectoryEntry(path, entry.attributes(), () -> subdirectory));
+        }
+        return new DirectoryListing(listing.directory(), entries);
+    }
+
+    // Subdirectories this service would not have listed appear empty
+    @Nonnull
+    private DirectoryListing view(@Nonnull DirectoryListing listing) {
+        final List<DirectoryEntry> entries = new ArrayList<>(listing.entries().size());
+        for (DirectoryEntry entry : listing.entries()) {
+            if (!entry.isDirectory()) {
+                entries.add(entry);
+                continue;
+            }
+            final Path path = entry.path();
+            final boolean listed = listDirectory(path);
+            entries.add(
+                    new DirectoryEntry(
+                            path,
+                            entry.attributes(),
+                            () ->
+                                    listed && !skipDirectory(entry.listing(), path)
+                                            ? view(entry.listing())
+                                            : new DirectoryListing(path, List.of())));
+        }
+        return new DirectoryListing(listing.directory(), entries);
+    }
+
+    @Nonnull
+    DirectoryWalker newWalker() {
+        return newWalker(
+                this::listDirectory, listing -> skipDirectory(listing, listing.directory()));
+    }
+
+    @Nonnull
+    private DirectoryWalker newWalker(
+            @Nonnull Predicate<Path> directoryFilter,
+            @Nonnull Predicate<IDirectoryListing> skipFilter) {
+        final DirectoryWalker walker = new DirectoryWalker(parallelism, directoryFilter);
+        walker.setSkipFilter(skipFilter);
+        walker.setRespectIgnoreFiles(respectIgnoreFiles);
+        walker.setSymbolicLinkPolicy(symbolicLinkPolicy);
+        return walker;
+    }
+
+    @Nonnull
+    private Map<String, List<String>> indexTree(
+            @Nonnull DirectoryListing tree, @Nonnull List<ProjectModule> projectModules)
+            throws ClientDisconnected {
+        return indexTree(tree, projectModules, null);
+    }
+
+    @Nonnull
+    private Map<String, List<String>> indexTree(
+            @Nonnull DirectoryListing tree,
+            @Nonnull List<ProjectModule> projectModules,
+            @Nullable Consumer<ProjectModule> moduleConsumer)
+            throws ClientDisconnected {
+        if (manifestFile != null) {
+            manifest = IndexManifest.load(manifestFile, baseDirectory, languageIdentifier);
+        }
+        indexedFileKeys = new HashSet<>();
+        duplicateFiles = 0;
+        detectModules(tree, projectModules, moduleConsumer);
+        indexedFileKeys = null;
+        if (duplicateFiles > 0) {
+            LOGGER.info("Skipped {} files already indexed at another path", duplicateFiles);
+        }
+        if (!skippedDirectories.isEmpty()) {
+            LOGGER.info("Skipped {} dependency directories", skippedDirectories.size());
+        }
+        if (manifest == null) {
+            return Map.of();
+        }
+        final Map<String, List<String>> deletedFiles = manifest.deletedFiles();
+        try {
+            manifest.write(manifestFile);
+        } catch (IOException iox) {
+            LOGGER.error("Could not write manifest {}: {}", manifestFile, iox.getMessage());
+        }
+        manifest = null;
+        return deletedFiles;
+    }
+
+    @Nonnull
+    private List<ProjectModule> addDeletedFiles(
+            @Nonnull List<ProjectModule> projectModules,
+            @Nonnull Map<String, List<String>> deletedFiles) {
+        if (deletedFiles.isEmpty()) {
+            return projectModules;
+        }
+        final List<ProjectModule> result = new ArrayList<>();
+        for (ProjectModule module : projectModules) {
+            final List<String> deleted = deletedFiles.remove(module.identifier());
+            if (deleted == null) {
+                result.add(module);
+            } else {
+                result.add(
+                        new ProjectModule(
+                                module.identifier(),
+                                module.packagePath(),
+                                module.lazyInputFileList(),
+                                deleted.stream().map(baseDirectory::resolve).toList(),
+                                module.buildArtifacts()));
+            }
+        }
+        // modules that have no files left
+        deletedFiles.forEach(
+                (identifier, deleted) ->
+                        result.add(
+                                new ProjectModule(
+                                        identifier,
+                                        baseDirectory.resolve(identifier),
+                                        List.of(),
+                                        deleted.stream().map(baseDirectory::resolve).toList())));
+        LOGGER.info(
+                "Found {} deleted {} files",
+                result.stream().mapToInt(module -> module.deletedFiles().size()).sum(),
+                languageFileExtension);
+        return result;
+    }
+
+    // excluded subtrees are pruned during the walk and never listed
+    boolean listDirectory(@Nonnull Path directory) {
+        return !directory.getFileName().toString().equals(".git")
+                && !pathFilter.excludesSubtree(
+                        getProjectIdentifier(directory),
+                        directory.getFileSystem().getSeparator());
+    }
+
+    boolean skipsDirectory(@Nonnull IDirectoryListing listing) {
+        return skipDependencyDirectories && isDependencyDirectory(listing);
+    }
+
+    boolean skipDirectory(@Nonnull IDirectoryListing listing, @Nonnull Path directory) {
+        if (!skipsDirectory(listing)) {
+            return false;
+        }
+        LOGGER.debug("Skipping dependency directory {}", directory);
+        skippedDirectories.add(directory);
+        return true;
     }
 
     private void detectModules(
-            @Nonnull File projectDirectory, @Nonnull List<ProjectModule> projectModules)
+            @Nonnull DirectoryListing listing,
+            @Nonnull List<ProjectModule> projectModules,
+            @Nullable Consumer<ProjectModule> moduleConsumer)
             throws ClientDisconnected {
-        if (projectDirectory.isFile() || excludeFromIndexing(projectDirectory)) {
+        final Path projectDirectory = listing.directory();
+        if (excludeFromIndexing(projectDirectory)) {
             return;
         }
-        if (isModule(projectDirectory)) {
+        if (isModule(listing)) {
             // Contains build files that indicates that this should be indexed as a module.
             // This module cannot be composed of more modules
             if (this.mainBuildType == null) {
-                this.mainBuildType = this.getMainBuildTypeFromModuleDirectory(projectDirectory);
+                this.mainBuildType = this.getMainBuildTypeFromModuleDirectory(listing);
             }
-            addProjectModuleFromDirectory(projectModules, projectDirectory);
+            addProjectModuleFromDirectory(projectModules, listing, moduleConsumer);
         } else {
             // this directory is not a module
-            final File[] filesInDir = projectDirectory.listFiles();
-            if (filesInDir == null) {
-                return;
-            }
-            for (File file : filesInDir) {
-                if (file.isDirectory() && !file.getName().equals(".git")) {
-                    this.detectModules(file, projectModules);
+            for (DirectoryEntry entry : listing.entries()) {
+                if (entry.isDirectory()) {
+                    this.detectModules(entry.listing(), projectModules, moduleConsumer);
                 }
             }
             // if no modules where found just add all files
             if (projectModules.isEmpty()) {
-                addProjectModuleFromDirectory(projectModules, projectDirectory);
+                addProjectModuleFromDirectory(projectModules, listing, moduleConsumer);
             }
         }
     }
 
     void addProjectModuleFromDirectory(
-            @Nonnull List<ProjectModule> projectModules, @Nonnull File projectDirectory)
+            @Nonnull List<ProjectModule> projectModules,
+            @Nonnull DirectoryListing listing,
+            @Nullable Consumer<ProjectModule> moduleConsumer)
             throws ClientDisconnected {
+        final Path projectDirectory = listing.directory();
         if (excludeFromIndexing(projectDirectory)) {
             return;
         }
 
         final String projectIdentifier = getProjectIdentifier(projectDirectory);
-        final File[] filesInDirectory = projectDirectory.listFiles();
-        final List<InputFile> files = new ArrayList<>();
-        collectInputFiles(filesInDirectory, projectDirectory, projectModules, files);
+        List<LazyInputFile> files = new ArrayList<>();
+        final List<Path> classDirectories = new ArrayList<>();
+        final List<Path> libraries = new ArrayList<>();
+        collectInputFiles(
+                listing,
+                projectDirectory,
+                projectModules,
+                moduleConsumer,
+                files,
+                classDirectories,
+                libraries);
+        if (manifest != null) {
+            // only new and modified files are read to compute their hashes
+            final IndexManifest current = manifest;
+            files =
+                    files.parallelStream()
+                            .map(
+                                    file ->
+                                            current.track(
+                                                    file,
+                                                    getProjectIdentifier(file.path()),
+                                                    projectIdentifier))
+                            .toList();
+        } else if (fingerprintFiles || countLines) {
+            // every file is read once, for its hash and its number of lines
+            files = files.parallelStream().map(this::digest).toList();
+        }
 
         if (!files.isEmpty()) {
             if (this.progressDispatcher != null) {
@@ -154,71 +581,133 @@ public abstract class IndexingService {
                             + " "
                             + languageFileExtension
                             + " files]");
-            projectModules.add(
-                    new ProjectModule(projectIdentifier, projectDirectory.toPath(), files));
+            final BuildArtifacts buildArtifacts =
+                    new BuildArtifacts(List.copyOf(classDirectories), List.copyOf(libraries));
+            if (!buildArtifacts.isEmpty()) {
+                LOGGER.debug(
+                        "Found {} class directories and {} jars in '{}'",
+                        classDirectories.size(),
+                        libraries.size(),
+                        projectIdentifier);
+            }
+            final ProjectModule projectModule =
+                    new ProjectModule(
+                            projectIdentifier, projectDirectory, files, List.of(), buildArtifacts);
+            projectModules.add(projectModule);
+            if (moduleConsumer != null) {
+                moduleConsumer.accept(projectModule);
+            }
         }
     }
 
+    // Build artifacts are taken from the walked tree as well; class directories are not
+    // searched for sources
     void collectInputFiles(
-            @Nullable File[] fileList,
-            @Nonnull File projectDirectory,
+            @Nonnull DirectoryListing listing,
+            @Nonnull Path projectDirectory,
             @Nonnull List<ProjectModule> projectModules,
-            @Nonnull final List<InputFile> inputFiles)
+            @Nullable Consumer<ProjectModule> moduleConsumer,
+            @Nonnull final List<LazyInputFile> inputFiles,
+            @Nonnull final List<Path> classDirectories,
+            @Nonnull final List<Path> libraries)
             throws ClientDisconnected {
-        if (fileList == null) {
-            return;
-        }
-        for (File file : fileList) {
-            if (file.isDirectory() && !file.getName().equals(".git")) {
-                if (isModule(file)) {
-                    addProjectModuleFromDirectory(projectModules, file);
+        for (DirectoryEntry entry : listing.entries()) {
+            if (entry.isDirectory()) {
+                if (isModule(entry.listing())) {
+                    addProjectModuleFromDirectory(
+                            projectModules, entry.listing(), moduleConsumer);
+                } else if (isClassDirectory(projectDirectory, entry.path())) {
+                    classDirectories.add(entry.path());
                 } else {
                     collectInputFiles(
-                            file.listFiles(), projectDirectory, projectModules, inputFiles);
+                            entry.listing(),
+                            projectDirectory,
+                            projectModules,
+                            moduleConsumer,
+                            inputFiles,
+                            classDirectories,
+                            libraries);
                 }
                 continue;
             }
-            if (file.getName().endsWith(this.languageFileExtension)
-                    && !this.excludeFromIndexing(file)) {
-                try {
-                    final TestInputFileBuilder builder =
-                            createTestFileBuilder(projectDirectory, file);
-                    builder.setLanguage(this.languageIdentifier);
-                    inputFiles.add(builder.build());
-                } catch (IOException iox) {
-                    LOGGER.debug(iox.getLocalizedMessage());
-                }
+            if (isLibrary(projectDirectory, entry.path())) {
+                libraries.add(entry.path());
+            } else if (acceptsFile(entry.path()) && !isIndexedAtAnotherPath(entry)) {
+                inputFiles.add(
+                        inputFile(
+                                projectDirectory,
+                                entry.path(),
+                                entry.attributes(),
+                                entry.contentLoader()));
             }
         }
     }
 
-    private boolean excludeFromIndexing(@Nonnull File file) {
-        String relativePath = getProjectIdentifier(file);
-        return excludePatterns.stream().anyMatch(p -> p.matcher(relativePath).find());
+    boolean acceptsFile(@Nonnull Path path) {
+        return path.getFileName().toString().endsWith(this.languageFileExtension)
+                && pathFilter.acceptsFile(getProjectIdentifier(path));
     }
 
     @Nonnull
-    protected TestInputFileBuilder createTestFileBuilder(
-            @Nonnull File projectDirectory, @Nonnull File file) throws IOException {
-        Charset encoding = null;
-        String contents = null;
-        for (Charset cs : List.of(UTF_8, ISO_8859_1)) {
-            try {
-                contents = Files.readString(file.toPath(), cs);
-                encoding = cs;
-                break;
-            } catch (Exception error) {
-                LOGGER.error("Error reading file {}: {}", file.getPath(), error.getMessage());
-            }
+    LazyInputFile inputFile(
+            @Nonnull Path projectDirectory,
+            @Nonnull Path path,
+            @Nonnull BasicFileAttributes attributes,
+            @Nullable IContentLoader contentLoader) {
+        return new LazyInputFile(
+                projectDirectory,
+                path,
+                attributes.size(),
+                -1,
+                attributes.lastModifiedTime().toMillis(),
+                UTF_8,
+                this.languageIdentifier,
+                null,
+                null,
+                contentLoader);
+    }
+
+    // Reads the file for its hash and its number of lines, as far as they are wanted
+    @Nonnull
+    LazyInputFile digest(@Nonnull LazyInputFile file) {
+        if (!fingerprintFiles && !countLines) {
+            return file;
         }
-        if (contents == null || encoding == null) {
-            throw new IOException("Invalid encoding of file " + file);
+        return file.withDigest(ContentDigest.of(file, fingerprintFiles));
+    }
+
+    // Hard links and followed symbolic links share the file key of their target
+    private boolean isIndexedAtAnotherPath(@Nonnull DirectoryEntry entry) {
+        final Object fileKey = entry.attributes().fileKey();
+        if (fileKey == null || indexedFileKeys == null || indexedFileKeys.add(fileKey)) {
+            return false;
         }
-        return new TestInputFileBuilder("", projectDirectory, file)
-                .setProjectBaseDir(projectDirectory.toPath())
-                .setContents(contents)
-                .setCharset(encoding)
-                .setType(InputFile.Type.MAIN);
+        LOGGER.debug("Skipping {}, already indexed at another path", entry.path());
+        duplicateFiles++;
+        return true;
+    }
+
+    boolean excludeFromIndexing(@Nonnull Path path) {
+        return pathFilter.isExcluded(getProjectIdentifier(path));
+    }
+
+    @Nonnull
+    public String getLanguageIdentifier() {
+        return languageIdentifier;
+    }
+
+    @Nonnull
+    Path getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    boolean getRespectIgnoreFiles() {
+        return respectIgnoreFiles;
+    }
+
+    @Nonnull
+    SymbolicLinkPolicy getSymbolicLinkPolicy() {
+        return symbolicLinkPolicy;
     }
 
     @Nonnull
@@ -228,10 +717,48 @@ public abstract class IndexingService {
 
     @Nonnull
     protected String getProjectIdentifier(@Nonnull File directory) {
-        return baseDirectory.toPath().relativize(directory.toPath()).toString();
+        return getProjectIdentifier(directory.toPath());
+    }
+
+    @Nonnull
+    protected String getProjectIdentifier(@Nonnull Path directory) {
+        return baseDirectory.relativize(directory).toString();
+    }
+
+    // The indexer decides from the listing it already has, which also works for trees that
+    // are not on a file system at all
+    public abstract boolean isModule(@Nonnull IDirectoryListing directory);
+
+    @Nullable public abstract IBuildType getMainBuildTypeFromModuleDirectory(
+            @Nonnull IDirectoryListing directory);
+
+    public boolean isModule(@Nonnull Path directory) {
+        return isModule(IDirectoryListing.of(directory));
     }
 
-    public abstract boolean isModule(@Nonnull File directory);
+    public boolean isModule(@Nonnull File directory) {
+        return isModule(directory.toPath());
+    }
+
+    @Nullable public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull Path directory) {
+        return getMainBuildTypeFromModuleDirectory(IDirectoryListing.of(directory));
+    }
+
+    @Nullable public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
+        return getMainBuildTypeFromModuleDirectory(directory.toPath());
+    }
 
-    @Nullable public abstract IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory);
+    // Build outputs of the module in the given directory; none by default
+    protected boolean isClassDirectory(@Nonnull Path moduleDirectory, @Nonnull Path directory) {
+        return false;
+    }
+
+    protected boolean isLibrary(@Nonnull Path moduleDirectory, @Nonnull Path file) {
+        return false;
+    }
+
+    // Whether the directory holds installed dependencies rather than project sources
+    protected boolean isDependencyDirectory(@Nonnull IDirectoryListing directory) {
+        return false;
+    }
 }
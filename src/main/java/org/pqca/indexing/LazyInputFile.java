@@ -0,0 +1,167 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+// A source file as recorded by the indexer. Only the location, size and charset are kept
+// in memory; the contents are read each time the file is loaded, so the heap only holds
+// the files a scanner is currently working on.
+// Status is only known when indexing against a manifest, the content hash also when files are
+// fingerprinted. The number of lines is counted while indexing, -1 if it was not. Files that
+// do not exist on disk (e.g. git blobs) are read through their content loader instead of
+// their path.
+public record LazyInputFile(
+        @Nonnull Path projectDirectory,
+        @Nonnull Path path,
+        long size,
+        long lines,
+        long lastModified,
+        @Nonnull Charset charset,
+        @Nonnull String language,
+        @Nullable InputFile.Status status,
+        @Nullable String contentHash,
+        @Nullable IContentLoader contentLoader) {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyInputFile.class);
+
+    public LazyInputFile(
+            @Nonnull Path projectDirectory,
+            @Nonnull Path path,
+            long size,
+            long lastModified,
+            @Nonnull Charset charset,
+            @Nonnull String language) {
+        this(projectDirectory, path, size, -1, lastModified, charset, language, null, null, null);
+    }
+
+    @Nonnull
+    public String filename() {
+        return path.getFileName().toString();
+    }
+
+    // The SHA-256 of the content as computed by the indexer; empty if files were not
+    // fingerprinted while indexing
+    @Nonnull
+    public String fingerprint() {
+        return contentHash != null ? contentHash : "";
+    }
+
+    @Nonnull
+    LazyInputFile withDigest(@Nonnull ContentDigest digest) {
+        return new LazyInputFile(
+                projectDirectory,
+                path,
+                size,
+                digest.lines(),
+                lastModified,
+                charset,
+                language,
+                status,
+                digest.contentHash().isEmpty() ? contentHash : digest.contentHash(),
+                contentLoader);
+    }
+
+    @Nonnull
+    public InputFile load() {
+        return load(new SourceDecoder());
+    }
+
+    // Throws if the file vanished or became unreadable after indexing
+    @Nonnull
+    public InputFile load(@Nonnull SourceDecoder decoder) {
+        final DecodedSource source;
+        try {
+            source = decoder.decode(path, contentLoader, charset);
+        } catch (IOException iox) {
+            throw new UncheckedIOException("Cannot read " + path, iox);
+        }
+        return inputFile(source.contents(), source.charset());
+    }
+
+    // Stands in for a file that cannot be read any more
+    @Nonnull
+    InputFile empty() {
+        return inputFile("", charset);
+    }
+
+    @Nonnull
+    private InputFile inputFile(@Nonnull String contents, @Nonnull Charset contentCharset) {
+        final TestInputFileBuilder builder =
+                new TestInputFileBuilder("", projectDirectory.relativize(path).toString())
+                        .setModuleBaseDir(projectDirectory)
+                        .setProjectBaseDir(projectDirectory)
+                        .setContents(contents)
+                        .setCharset(contentCharset)
+                        .setType(InputFile.Type.MAIN)
+                        .setLanguage(language);
+        if (status != null) {
+            builder.setStatus(status);
+        }
+        return builder.build();
+    }
+
+    // Empty if the file cannot be read any more; like the indexer, scanners skip such files
+    @Nonnull
+    public Optional<InputFile> tryLoad(@Nonnull SourceDecoder decoder) {
+        try {
+            return Optional.of(load(decoder));
+        } catch (UncheckedIOException e) {
+            LOGGER.error("Error reading file {}: {}", path, e.getCause().getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // A file that was read before indexing became lazy; its contents stay in memory
+    @Nonnull
+    static LazyInputFile of(@Nonnull Path projectDirectory, @Nonnull InputFile file) {
+        final Charset charset = file.charset() != null ? file.charset() : UTF_8;
+        final byte[] content;
+        try {
+            content = file.contents().getBytes(charset);
+        } catch (IOException iox) {
+            throw new UncheckedIOException("Cannot read " + file, iox);
+        }
+        final Path path = Path.of(file.uri());
+        return new LazyInputFile(
+                path.startsWith(projectDirectory) ? projectDirectory : path.getParent(),
+                path,
+                content.length,
+                file.lines(),
+                0,
+                charset,
+                file.language() != null ? file.language() : "",
+                file.status(),
+                null,
+                () -> ByteBuffer.wrap(content));
+    }
+}
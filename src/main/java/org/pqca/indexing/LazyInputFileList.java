@@ -0,0 +1,95 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+// Read-only view that loads every element on first access and keeps it for as long as the
+// view is referenced, so repeated access returns the same object without reading the file
+// again. Files that cannot be read any more are logged and appear empty, so that the size
+// always matches the elements. The lines of every file are reported to the line counter, if
+// any, when the file is loaded.
+final class LazyInputFileList extends AbstractList<InputFile> implements RandomAccess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyInputFileList.class);
+
+    @Nonnull private final List<LazyInputFile> files;
+    @Nonnull private final SourceDecoder decoder;
+    @Nonnull private final AtomicReferenceArray<InputFile> loaded;
+    @Nullable private final LongConsumer lineCounter;
+
+    LazyInputFileList(@Nonnull List<LazyInputFile> files, @Nonnull SourceDecoder decoder) {
+        this(files, decoder, null);
+    }
+
+    LazyInputFileList(
+            @Nonnull List<LazyInputFile> files,
+            @Nonnull SourceDecoder decoder,
+            @Nullable LongConsumer lineCounter) {
+        this.files = files;
+        this.decoder = decoder;
+        this.loaded = new AtomicReferenceArray<>(files.size());
+        this.lineCounter = lineCounter;
+    }
+
+    @Override
+    public InputFile get(int index) {
+        final InputFile cached = loaded.get(index);
+        return cached != null ? cached : load(index);
+    }
+
+    @Override
+    public int size() {
+        return files.size();
+    }
+
+    @Nonnull
+    private InputFile load(int index) {
+        final LazyInputFile file = files.get(index);
+        InputFile inputFile;
+        long lines;
+        try {
+            inputFile = file.load(decoder);
+            // counted by the indexer, or else from the contents just decoded
+            lines = file.lines() >= 0 ? file.lines() : Math.max(0, inputFile.lines());
+        } catch (UncheckedIOException e) {
+            LOGGER.error("Error reading file {}: {}", file.path(), e.getCause().getMessage());
+            inputFile = file.empty();
+            lines = 0;
+        }
+        // another thread may have loaded the same file meanwhile
+        if (!loaded.compareAndSet(index, null, inputFile)) {
+            return loaded.get(index);
+        }
+        if (lineCounter != null) {
+            lineCounter.accept(lines);
+        }
+        return inputFile;
+    }
+}
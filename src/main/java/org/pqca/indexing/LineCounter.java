@@ -0,0 +1,86 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+// Counts lines the way InputFile.lines() does: every \n, \r\n or lone \r ends a line, and
+// the text after the last line break is a line of its own, even if empty. Single-byte and
+// UTF-8 content is counted on the raw bytes, eight at a time.
+final class LineCounter {
+    private static final long LF = 0x0A0A0A0A0A0A0A0AL;
+    private static final long CR = 0x0D0D0D0D0D0D0D0DL;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private LineCounter() {}
+
+    static long countLines(@Nonnull ByteBuffer content) {
+        final ByteBuffer bytes = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final Charset utf16 = SourceDecoder.detectUtf16(bytes);
+        if (utf16 != null) {
+            return countLines(utf16.decode(bytes));
+        }
+        final int end = bytes.limit();
+        int i = bytes.position();
+        long lineBreaks = 0;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            final long word = bytes.getLong(i);
+            lineBreaks += Long.bitCount(matching(word, LF));
+            long carriageReturns = matching(word, CR);
+            while (carriageReturns != 0) {
+                // a \r\n is counted with its \n
+                final int position = i + Long.numberOfTrailingZeros(carriageReturns) / 8;
+                if (position + 1 >= end || bytes.get(position + 1) != '\n') {
+                    lineBreaks++;
+                }
+                carriageReturns &= carriageReturns - 1;
+            }
+        }
+        for (; i < end; i++) {
+            final byte b = bytes.get(i);
+            if (b == '\n' || (b == '\r' && (i + 1 >= end || bytes.get(i + 1) != '\n'))) {
+                lineBreaks++;
+            }
+        }
+        return lineBreaks + 1;
+    }
+
+    static long countLines(@Nonnull CharSequence content) {
+        final int end = content.length();
+        long lineBreaks = 0;
+        for (int i = 0; i < end; i++) {
+            final char c = content.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 >= end || content.charAt(i + 1) != '\n'))) {
+                lineBreaks++;
+            }
+        }
+        return lineBreaks + 1;
+    }
+
+    // The high bit of every byte of the word that equals the byte of the pattern. Bytes are
+    // tested without carries between them, so the result is exact.
+    private static long matching(long word, long pattern) {
+        final long x = word ^ pattern;
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Hands modules from the indexing thread to the consumer of a module stream as soon as they
+// are found. The indexing thread waits while the consumer is CAPACITY modules behind. Once
+// the consumer closes the pipe, the indexing thread is stopped at the next module it offers.
+final class ModulePipe implements Iterator<ProjectModule>, Consumer<ProjectModule> {
+    static final int CAPACITY = 16;
+    private static final Object END = new Object();
+
+    private record Failure(@Nonnull RuntimeException exception) {}
+
+    @Nonnull private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(CAPACITY);
+    private volatile boolean closed;
+    private Object next;
+
+    @Override
+    public void accept(@Nonnull ProjectModule module) {
+        if (!put(module)) {
+            throw new CancellationException("Module stream was closed");
+        }
+    }
+
+    void complete() {
+        put(END);
+    }
+
+    void fail(@Nonnull RuntimeException exception) {
+        put(new Failure(exception));
+    }
+
+    void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    // Waits for room in the queue; false if the consumer closed the pipe in the meantime
+    private boolean put(@Nonnull Object element) {
+        try {
+            while (!closed) {
+                if (queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while handing over modules");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for modules");
+            }
+        }
+        if (next instanceof Failure failure) {
+            throw failure.exception();
+        }
+        return next != END;
+    }
+
+    @Override
+    public ProjectModule next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final ProjectModule module = (ProjectModule) next;
+        next = null;
+        return module;
+    }
+}
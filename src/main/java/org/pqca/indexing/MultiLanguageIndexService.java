@@ -0,0 +1,139 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.progress.IProgressDispatcher;
+import org.pqca.progress.ProgressMessage;
+import org.pqca.progress.ProgressMessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Indexes a directory tree for several languages with a single walk. A directory is listed
+// if any of the indexing services would list it; each service then detects its modules in
+// the shared tree as if it had walked the tree itself, with its own exclude and include
+// patterns, dependency directories and manifest. The walk options are those of this class,
+// not of the services.
+public final class MultiLanguageIndexService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiLanguageIndexService.class);
+
+    @Nullable private final IProgressDispatcher progressDispatcher;
+    @Nonnull private final List<IndexingService> indexingServices;
+    @Nonnull private final Path baseDirectory;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean respectIgnoreFiles = false;
+    @Nonnull private SymbolicLinkPolicy symbolicLinkPolicy = SymbolicLinkPolicy.FOLLOW;
+
+    public MultiLanguageIndexService(@Nonnull List<IndexingService> indexingServices) {
+        this(null, indexingServices);
+    }
+
+    public MultiLanguageIndexService(
+            @Nullable IProgressDispatcher progressDispatcher,
+            @Nonnull List<IndexingService> indexingServices) {
+        if (indexingServices.isEmpty()) {
+            throw new IllegalArgumentException("No indexing services");
+        }
+        this.progressDispatcher = progressDispatcher;
+        this.indexingServices = List.copyOf(indexingServices);
+        this.baseDirectory = indexingServices.getFirst().getBaseDirectory();
+        for (IndexingService indexingService : this.indexingServices) {
+            if (!indexingService.getBaseDirectory().equals(baseDirectory)) {
+                throw new IllegalArgumentException(
+                        "Indexing services for "
+                                + baseDirectory
+                                + " and "
+                                + indexingService.getBaseDirectory()
+                                + " cannot share a walk");
+            }
+        }
+        if (indexingServices.stream()
+                        .map(IndexingService::getLanguageIdentifier)
+                        .distinct()
+                        .count()
+                < indexingServices.size()) {
+            throw new IllegalArgumentException("More than one indexing service per language");
+        }
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setRespectIgnoreFiles(boolean respectIgnoreFiles) {
+        this.respectIgnoreFiles = respectIgnoreFiles;
+    }
+
+    public void setSymbolicLinkPolicy(@Nonnull SymbolicLinkPolicy symbolicLinkPolicy) {
+        this.symbolicLinkPolicy = symbolicLinkPolicy;
+    }
+
+    // Returns the project modules by language identifier, in the order of the services
+    @Nonnull
+    public Map<String, List<ProjectModule>> index() throws ClientDisconnected {
+        if (this.progressDispatcher != null) {
+            this.progressDispatcher.send(
+                    new ProgressMessage(ProgressMessageType.LABEL, "Indexing projects ..."));
+        }
+        LOGGER.info("Indexing projects for {} languages ...", indexingServices.size());
+        indexingServices.forEach(IndexingService::clearSkippedDirectories);
+        try (DirectoryWalker walker = new DirectoryWalker(parallelism, this::listDirectory)) {
+            walker.setSkipFilter(this::skipDirectory);
+            walker.setRespectIgnoreFiles(respectIgnoreFiles);
+            walker.setSymbolicLinkPolicy(symbolicLinkPolicy);
+            // the first service consumes the tree while it is walked, the others reuse it
+            final DirectoryListing tree = walker.walk(baseDirectory);
+            final Map<String, List<ProjectModule>> projectModules = new LinkedHashMap<>();
+            for (IndexingService indexingService : indexingServices) {
+                projectModules.put(
+                        indexingService.getLanguageIdentifier(),
+                        indexingService.indexSharedTree(tree));
+            }
+            return projectModules;
+        }
+    }
+
+    private boolean listDirectory(@Nonnull Path directory) {
+        for (IndexingService indexingService : indexingServices) {
+            if (indexingService.listDirectory(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // only directories that every service skips are left out of the walk
+    private boolean skipDirectory(@Nonnull IDirectoryListing listing) {
+        for (IndexingService indexingService : indexingServices) {
+            if (!indexingService.skipsDirectory(listing)) {
+                return false;
+            }
+        }
+        indexingServices.forEach(
+                indexingService -> indexingService.skipDirectory(listing, listing.directory()));
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+// The names of a directory of any file system, read in a single pass. Entries are only
+// inspected when their type is asked for and their name is present, so that deciding on a
+// directory costs one listing instead of one stat per candidate name.
+final class PathDirectoryListing implements IDirectoryListing {
+    @Nonnull private final Path directory;
+    @Nonnull private final Set<String> names = new HashSet<>();
+
+    PathDirectoryListing(@Nonnull Path directory) {
+        this.directory = directory;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                names.add(path.getFileName().toString());
+            }
+        } catch (IOException iox) {
+            // missing or unreadable, and therefore empty
+            names.clear();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public boolean contains(@Nonnull String name) {
+        return names.contains(name);
+    }
+
+    @Override
+    public boolean containsFile(@Nonnull String name) {
+        return names.contains(name) && Files.isRegularFile(directory.resolve(name));
+    }
+
+    @Override
+    public boolean containsDirectory(@Nonnull String name) {
+        return names.contains(name) && Files.isDirectory(directory.resolve(name));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Include and exclude patterns, matched with find() against paths relative to the base
+// directory. The patterns of each kind are compiled into a single alternation, so a path
+// is scanned once instead of once per pattern. Patterns with back references cannot be
+// combined (the group numbers would shift) and are kept as separate expressions.
+final class PathFilter {
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+    // Literal text (with escaped metacharacters), optionally anchored at the start and
+    // followed by .*; if it matches in a directory path, it matches in every path below it.
+    private static final Pattern PREFIX_SAFE =
+            Pattern.compile("\\^?(?:[^\\\\.\\[\\](){}*+?^$|]|\\\\[^0-9A-Za-z])*(?:\\.\\*)?");
+
+    @Nonnull private final List<Pattern> excludes;
+    @Nonnull private final List<Pattern> includes;
+    // the exclude patterns that can prune whole directories
+    @Nonnull private final List<Pattern> subtreeExcludes;
+
+    PathFilter(@Nonnull List<String> excludePatterns, @Nonnull List<String> includePatterns) {
+        this.excludes = compile(excludePatterns);
+        this.includes = compile(includePatterns);
+        this.subtreeExcludes =
+                excludePatterns.stream()
+                        .filter(pattern -> PREFIX_SAFE.matcher(pattern).matches())
+                        .map(Pattern::compile)
+                        .toList();
+    }
+
+    boolean isExcluded(@Nonnull String relativePath) {
+        return excludes.stream().anyMatch(pattern -> pattern.matcher(relativePath).find());
+    }
+
+    boolean isIncluded(@Nonnull String relativePath) {
+        return includes.isEmpty()
+                || includes.stream().anyMatch(pattern -> pattern.matcher(relativePath).find());
+    }
+
+    boolean acceptsFile(@Nonnull String relativePath) {
+        return isIncluded(relativePath) && !isExcluded(relativePath);
+    }
+
+    // True if every path below the directory is excluded, so the directory does not need to
+    // be listed. Only literal patterns such as src/test/ or build/.* are known to match every
+    // path that starts with "directory/"; for all others (anchors at the end, lookarounds,
+    // alternations) the directory is listed and its files are filtered one by one.
+    boolean excludesSubtree(@Nonnull String relativeDirectory, @Nonnull String separator) {
+        final String prefix = relativeDirectory + separator;
+        return subtreeExcludes.stream().anyMatch(pattern -> pattern.matcher(prefix).find());
+    }
+
+    @Nonnull
+    private static List<Pattern> compile(@Nonnull List<String> patterns) {
+        final List<Pattern> compiled = new ArrayList<>();
+        final List<String> combinable = new ArrayList<>();
+        for (String pattern : patterns) {
+            // fails on the offending pattern rather than on the combined expression
+            final Pattern single = Pattern.compile(pattern);
+            if (BACK_REFERENCE.matcher(pattern).find()) {
+                compiled.add(single);
+            } else {
+                combinable.add(pattern);
+            }
+        }
+        if (combinable.size() == 1) {
+            compiled.addFirst(Pattern.compile(combinable.getFirst()));
+        } else if (!combinable.isEmpty()) {
+            compiled.addFirst(
+                    Pattern.compile(
+                            combinable.stream()
+                                    .map(pattern -> "(?:" + pattern + ")")
+                                    .collect(Collectors.joining("|"))));
+        }
+        return compiled;
+    }
+}
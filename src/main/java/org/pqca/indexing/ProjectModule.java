@@ -22,9 +22,67 @@ package org.pqca.indexing;
 import jakarta.annotation.Nonnull;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.LongConsumer;
 import org.sonar.api.batch.fs.InputFile;
 
+// deletedFiles lists the files of this module that were removed since the previous
+// index run; it is only filled when indexing against a manifest. buildArtifacts are the
+// class directories and jars found within the module, if the indexer looks for them.
 public record ProjectModule(
         @Nonnull String identifier,
         @Nonnull Path packagePath,
-        @Nonnull List<InputFile> inputFileList) {}
+        @Nonnull List<LazyInputFile> lazyInputFileList,
+        @Nonnull List<Path> deletedFiles,
+        @Nonnull BuildArtifacts buildArtifacts) {
+
+    public ProjectModule(
+            @Nonnull String identifier,
+            @Nonnull Path packagePath,
+            @Nonnull List<LazyInputFile> lazyInputFileList,
+            @Nonnull List<Path> deletedFiles) {
+        this(identifier, packagePath, lazyInputFileList, deletedFiles, BuildArtifacts.NONE);
+    }
+
+    // Modules of files that were already read, as built before files were loaded lazily
+    public ProjectModule(
+            @Nonnull String identifier,
+            @Nonnull Path packagePath,
+            @Nonnull List<InputFile> inputFileList) {
+        this(
+                identifier,
+                packagePath,
+                inputFileList.stream().map(file -> LazyInputFile.of(packagePath, file)).toList(),
+                List.of());
+    }
+
+    // Every call returns a new view; it reads each file on first access and keeps it for as
+    // long as the view is referenced
+    @Nonnull
+    public List<InputFile> inputFileList() {
+        return inputFileList(new SourceDecoder());
+    }
+
+    @Nonnull
+    public List<InputFile> inputFileList(@Nonnull SourceDecoder decoder) {
+        return new LazyInputFileList(lazyInputFileList, decoder);
+    }
+
+    // Reports the lines of each file as it is loaded, so that scanners count the lines of files
+    // the indexer did not count without reading them a second time
+    @Nonnull
+    public List<InputFile> inputFileList(
+            @Nonnull SourceDecoder decoder, @Nonnull LongConsumer lineCounter) {
+        return new LazyInputFileList(lazyInputFileList, decoder, lineCounter);
+    }
+
+    // Uses the line counts of the indexer; only files indexed without them are read
+    public long numberOfLines() {
+        long lines = 0;
+        for (LazyInputFile file : lazyInputFileList) {
+            final long fileLines =
+                    file.lines() >= 0 ? file.lines() : ContentDigest.of(file, false).lines();
+            lines += Math.max(0, fileLines);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+// Distributes project modules over a number of shards of about equal cost, so that parallel
+// workers finish at about the same time. Modules are placed largest first, each on the
+// shard with the lowest cost so far (LPT scheduling). Modules that cost more than a shard
+// should can be split into parts of consecutive files; this is only safe for languages whose
+// files are scanned independently of each other, such as Python.
+public final class ShardPlanner {
+
+    public record Shard(@Nonnull List<ProjectModule> projectModules, long cost) {}
+
+    // files [start, start + files.size()) of a module
+    private record Part(
+            int moduleIndex, int start, @Nonnull List<LazyInputFile> files, long cost) {}
+
+    @Nonnull private ToLongFunction<LazyInputFile> cost = LazyInputFile::size;
+    private boolean splitModules = false;
+
+    // The cost of scanning a file; its size in bytes by default
+    public void setCost(@Nonnull ToLongFunction<LazyInputFile> cost) {
+        this.cost = cost;
+    }
+
+    public void setSplitModules(boolean splitModules) {
+        this.splitModules = splitModules;
+    }
+
+    // Returns at most numberOfShards non-empty shards. Within a shard, modules keep the order
+    // of the index; parts of a split module keep the order of its files, and its deleted
+    // files go with the first part.
+    @Nonnull
+    public List<Shard> plan(@Nonnull List<ProjectModule> projectModules, int numberOfShards) {
+        if (numberOfShards < 1) {
+            throw new IllegalArgumentException("Invalid number of shards: " + numberOfShards);
+        }
+        final List<Part> parts = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < projectModules.size(); i++) {
+            final List<LazyInputFile> files = projectModules.get(i).lazyInputFileList();
+            final long moduleCost = files.stream().mapToLong(cost).sum();
+            parts.add(new Part(i, 0, files, moduleCost));
+            total += moduleCost;
+        }
+        if (splitModules) {
+            final long target = (total + numberOfShards - 1) / numberOfShards;
+            final List<Part> split = new ArrayList<>();
+            for (Part part : parts) {
+                if (part.cost() > target && part.files().size() > 1) {
+                    split.addAll(split(part, target));
+                } else {
+                    split.add(part);
+                }
+            }
+            parts.clear();
+            parts.addAll(split);
+        }
+
+        // largest first; the sort is stable, so equal parts keep the order of the index
+        parts.sort(Comparator.comparingLong(Part::cost).reversed());
+        final long[] loads = new long[numberOfShards];
+        final List<List<Part>> assigned = new ArrayList<>();
+        final PriorityQueue<Integer> byLoad =
+                new PriorityQueue<>(
+                        Comparator.<Integer>comparingLong(shard -> loads[shard])
+                                .thenComparing(Comparator.naturalOrder()));
+        for (int shard = 0; shard < numberOfShards; shard++) {
+            assigned.add(new ArrayList<>());
+            byLoad.add(shard);
+        }
+        for (Part part : parts) {
+            final int shard = byLoad.poll();
+            assigned.get(shard).add(part);
+            loads[shard] += part.cost();
+            byLoad.add(shard);
+        }
+
+        final List<Shard> shards = new ArrayList<>();
+        for (int shard = 0; shard < numberOfShards; shard++) {
+            if (!assigned.get(shard).isEmpty()) {
+                shards.add(new Shard(toModules(projectModules, assigned.get(shard)), loads[shard]));
+            }
+        }
+        return shards;
+    }
+
+    // Cuts a module into runs of consecutive files that cost at most the target, unless a
+    // single file costs more
+    @Nonnull
+    private List<Part> split(@Nonnull Part part, long target) {
+        final List<Part> result = new ArrayList<>();
+        final List<LazyInputFile> files = part.files();
+        int start = 0;
+        long partCost = 0;
+        for (int i = 0; i < files.size(); i++) {
+            final long fileCost = cost.applyAsLong(files.get(i));
+            if (i > start && partCost + fileCost > target) {
+                result.add(
+                        new Part(part.moduleIndex(), start, files.subList(start, i), partCost));
+                start = i;
+                partCost = 0;
+            }
+            partCost += fileCost;
+        }
+        result.add(
+                new Part(part.moduleIndex(), start, files.subList(start, files.size()), partCost));
+        return result;
+    }
+
+    // Parts of the same module that ended up on the same shard are joined again
+    @Nonnull
+    private static List<ProjectModule> toModules(
+            @Nonnull List<ProjectModule> projectModules, @Nonnull List<Part> parts) {
+        final Map<Integer, List<Part>> byModule = new LinkedHashMap<>();
+        parts.stream()
+                .sorted(Comparator.comparingInt(Part::moduleIndex).thenComparingInt(Part::start))
+                .forEach(
+                        part ->
+                                byModule.computeIfAbsent(
+                                                part.moduleIndex(), index -> new ArrayList<>())
+                                        .add(part));
+        final List<ProjectModule> result = new ArrayList<>();
+        byModule.forEach(
+                (index, moduleParts) -> {
+                    final ProjectModule module = projectModules.get(index);
+                    final List<LazyInputFile> files = new ArrayList<>();
+                    moduleParts.forEach(part -> files.addAll(part.files()));
+                    if (files.size() == module.lazyInputFileList().size()) {
+                        result.add(module);
+                    } else {
+                        result.add(
+                                new ProjectModule(
+                                        module.identifier(),
+                                        module.packagePath(),
+                                        files,
+                                        moduleParts.getFirst().start() == 0
+                                                ? module.deletedFiles()
+                                                : List.of(),
+                                        module.buildArtifacts()));
+                    }
+                });
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// A zip based source archive (zip, sources.jar, wheel) opened with the zip file system
+// provider, so that its entries can be indexed and scanned without extracting them. The
+// archive has to stay open until the modules indexed from it have been scanned.
+public final class SourceArchive implements AutoCloseable {
+    @Nonnull private final Path archive;
+    @Nonnull private final FileSystem fileSystem;
+
+    private SourceArchive(@Nonnull Path archive, @Nonnull FileSystem fileSystem) {
+        this.archive = archive;
+        this.fileSystem = fileSystem;
+    }
+
+    @Nonnull
+    public static SourceArchive open(@Nonnull Path archive) throws IOException {
+        return new SourceArchive(archive, FileSystems.newFileSystem(archive));
+    }
+
+    @Nonnull
+    public Path archive() {
+        return archive;
+    }
+
+    @Nonnull
+    Path root() {
+        return fileSystem.getRootDirectories().iterator().next();
+    }
+
+    // The path an entry would have if the archive was extracted into the target directory
+    @Nonnull
+    Path extractedPath(@Nonnull Path entry, @Nonnull Path target) {
+        final String relativePath = root().relativize(entry).toString();
+        return relativePath.isEmpty() ? target : target.resolve(relativePath);
+    }
+
+    // Moves a listing of the archive to the target directory. Files keep reading their
+    // content from the archive.
+    @Nonnull
+    DirectoryListing extractedListing(@Nonnull DirectoryListing listing, @Nonnull Path target) {
+        final List<DirectoryEntry> entries = new ArrayList<>(listing.entries().size());
+        for (DirectoryEntry entry : listing.entries()) {
+            final Path path = extractedPath(entry.path(), target);
+            if (entry.isDirectory()) {
+                final DirectoryListing subdirectory = extractedListing(entry.listing(), target);
+                entries.add(new DirectoryEntry(path, entry.attributes(), () -> subdirectory));
+            } else {
+                final Path source = entry.path();
+                entries.add(
+                        new DirectoryEntry(
+                                path,
+                                entry.attributes(),
+                                null,
+                                () -> ByteBuffer.wrap(Files.readAllBytes(source))));
+            }
+        }
+        return new DirectoryListing(extractedPath(listing.directory(), target), entries);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileSystem.close();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Reads a source file once and decodes it from the same buffer. The charset is taken from a
+// byte order mark if there is one, otherwise UTF-16 is recognized by its zero bytes and UTF-8
+// is validated before decoding. Files that are not valid in the expected charset are decoded
+// as ISO-8859-1, which accepts any byte sequence.
+public final class SourceDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceDecoder.class);
+
+    // larger files are memory-mapped instead of copied to the heap before decoding
+    private static final long MAPPING_THRESHOLD = 1024 * 1024;
+    private static final int UTF_16_SAMPLE_SIZE = 4096;
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    @Nonnull private final Set<Path> fallbackDecodedFiles = ConcurrentHashMap.newKeySet();
+
+    // Number of distinct files that had to be decoded as ISO-8859-1
+    public int getNumberOfFallbackDecodedFiles() {
+        return fallbackDecodedFiles.size();
+    }
+
+    @Nonnull
+    DecodedSource decode(@Nonnull Path path, @Nonnull Charset expectedCharset)
+            throws IOException {
+        return decode(path, null, expectedCharset);
+    }
+
+    @Nonnull
+    DecodedSource decode(
+            @Nonnull Path path,
+            @Nullable IContentLoader contentLoader,
+            @Nonnull Charset expectedCharset)
+            throws IOException {
+        final ByteBuffer buffer = contentLoader != null ? contentLoader.load() : read(path);
+        final Charset charset = detectCharset(buffer, expectedCharset);
+        if (UTF_8.equals(expectedCharset) && ISO_8859_1.equals(charset)) {
+            LOGGER.debug("File {} is not valid {}, decoding as {}", path, expectedCharset, charset);
+            fallbackDecodedFiles.add(path);
+        }
+        return new DecodedSource(decode(buffer, charset), charset);
+    }
+
+    @Nonnull
+    static ByteBuffer read(@Nonnull Path path) throws IOException {
+        if (path.getFileSystem() == FileSystems.getDefault()
+                && Files.size(path) > MAPPING_THRESHOLD) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(path));
+    }
+
+    // Positions the buffer after a byte order mark, if any, and returns the charset to decode
+    // the remaining bytes with.
+    @Nonnull
+    static Charset detectCharset(@Nonnull ByteBuffer buffer, @Nonnull Charset expectedCharset) {
+        final int length = buffer.remaining();
+        final int start = buffer.position();
+        if (length >= 3
+                && buffer.get(start) == (byte) 0xEF
+                && buffer.get(start + 1) == (byte) 0xBB
+                && buffer.get(start + 2) == (byte) 0xBF) {
+            buffer.position(start + 3);
+            return UTF_8;
+        }
+        final Charset utf16 = detectUtf16(buffer);
+        if (utf16 != null) {
+            return utf16;
+        }
+        if (!UTF_8.equals(expectedCharset)) {
+            return expectedCharset;
+        }
+        return isValidUtf8(buffer) ? UTF_8 : ISO_8859_1;
+    }
+
+    // UTF-16 by byte order mark or by its zero bytes, with the buffer positioned after the
+    // mark; null for all other content
+    @Nullable static Charset detectUtf16(@Nonnull ByteBuffer buffer) {
+        final int start = buffer.position();
+        if (buffer.remaining() >= 2) {
+            if (buffer.get(start) == (byte) 0xFE && buffer.get(start + 1) == (byte) 0xFF) {
+                buffer.position(start + 2);
+                return UTF_16BE;
+            }
+            if (buffer.get(start) == (byte) 0xFF && buffer.get(start + 1) == (byte) 0xFE) {
+                buffer.position(start + 2);
+                return UTF_16LE;
+            }
+        }
+        return detectUtf16WithoutBom(buffer);
+    }
+
+    // Source code hardly ever contains NUL characters, so a sample in which every other byte
+    // is zero is UTF-16 text that is mostly ASCII.
+    @Nullable private static Charset detectUtf16WithoutBom(@Nonnull ByteBuffer buffer) {
+        final int start = buffer.position();
+        final int sample = Math.min(buffer.remaining(), UTF_16_SAMPLE_SIZE) & ~1;
+        if (sample == 0) {
+            return null;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i < sample; i += 2) {
+            if (buffer.get(start + i) == 0) {
+                evenZeros++;
+            }
+            if (buffer.get(start + i + 1) == 0) {
+                oddZeros++;
+            }
+        }
+        final int units = sample / 2;
+        if (oddZeros * 10 >= units * 7 && evenZeros * 10 <= units) {
+            return UTF_16LE;
+        }
+        if (evenZeros * 10 >= units * 7 && oddZeros * 10 <= units) {
+            return UTF_16BE;
+        }
+        return null;
+    }
+
+    // Validates the remaining bytes of the buffer as UTF-8 (RFC 3629: no overlong forms, no
+    // surrogates, nothing above U+10FFFF). ASCII runs are skipped eight bytes at a time.
+    static boolean isValidUtf8(@Nonnull ByteBuffer buffer) {
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int end = bytes.limit();
+        int i = bytes.position();
+        while (i < end) {
+            if (i + Long.BYTES <= end && (bytes.getLong(i) & NON_ASCII_MASK) == 0) {
+                i += Long.BYTES;
+                continue;
+            }
+            final int lead = bytes.get(i) & 0xFF;
+            if (lead < 0x80) {
+                i++;
+                continue;
+            }
+            final int sequenceLength;
+            int min = 0x80;
+            int max = 0xBF;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                sequenceLength = 2;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                sequenceLength = 3;
+                if (lead == 0xE0) {
+                    min = 0xA0; // overlong
+                } else if (lead == 0xED) {
+                    max = 0x9F; // surrogates
+                }
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                sequenceLength = 4;
+                if (lead == 0xF0) {
+                    min = 0x90; // overlong
+                } else if (lead == 0xF4) {
+                    max = 0x8F; // above U+10FFFF
+                }
+            } else {
+                return false;
+            }
+            if (i + sequenceLength > end) {
+                return false;
+            }
+            final int second = bytes.get(i + 1) & 0xFF;
+            if (second < min || second > max) {
+                return false;
+            }
+            for (int k = 2; k < sequenceLength; k++) {
+                final int continuation = bytes.get(i + k) & 0xFF;
+                if (continuation < 0x80 || continuation > 0xBF) {
+                    return false;
+                }
+            }
+            i += sequenceLength;
+        }
+        return true;
+    }
+
+    @Nonnull
+    private static String decode(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+        if (buffer.hasArray()) {
+            return new String(
+                    buffer.array(),
+                    buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining(),
+                    charset);
+        }
+        return charset.decode(buffer).toString();
+    }
+}
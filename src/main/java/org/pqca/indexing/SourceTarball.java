@@ -0,0 +1,349 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// A tar or tar.gz archive (sdists, release tarballs) read in a single pass. Tarballs cannot
+// be read at random positions, so the entries are kept in memory; files above a size limit,
+// and all files once the memory budget is used up, are spilled to one temporary file.
+// Several indexers can index the same tarball; close it after the modules were scanned.
+public final class SourceTarball implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SourceTarball.class);
+
+    private static final int BLOCK_SIZE = 512;
+    private static final long MAX_FILE_IN_MEMORY = 1024 * 1024;
+    private static final long MEMORY_BUDGET = 64 * 1024 * 1024;
+
+    // the tree of the archive, directories have children, files content
+    private static final class Node {
+        @Nonnull final Map<String, Node> children = new TreeMap<>();
+        @Nullable IContentLoader content;
+        long size;
+        long lastModified;
+    }
+
+    @Nonnull private final Path archive;
+    @Nonnull private final Node root = new Node();
+    @Nullable private Path spillFile;
+    @Nullable private OutputStream spillOutput;
+    private long spilled;
+    private long inMemory;
+
+    private SourceTarball(@Nonnull Path archive) {
+        this.archive = archive;
+    }
+
+    @Nonnull
+    public static SourceTarball read(@Nonnull Path archive) throws IOException {
+        final SourceTarball tarball = new SourceTarball(archive);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archive), 65536)) {
+            in.mark(2);
+            final boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+            in.reset();
+            tarball.readEntries(gzip ? new GZIPInputStream(in, 65536) : in);
+        } catch (IOException | RuntimeException e) {
+            tarball.close();
+            throw e;
+        }
+        return tarball;
+    }
+
+    @Nonnull
+    public Path archive() {
+        return archive;
+    }
+
+    private void readEntries(@Nonnull InputStream in) throws IOException {
+        final byte[] header = new byte[BLOCK_SIZE];
+        String longName = null;
+        Map<String, String> paxHeaders = Map.of();
+        try {
+            while (true) {
+                if (in.readNBytes(header, 0, BLOCK_SIZE) < BLOCK_SIZE || isZero(header)) {
+                    return;
+                }
+                final char type = (char) header[156];
+                long size = number(header, 124, 12);
+                final String paxSize = paxHeaders.get("size");
+                if (paxSize != null) {
+                    size = Long.parseLong(paxSize);
+                }
+                String name = paxHeaders.getOrDefault("path", longName);
+                if (name == null) {
+                    name = string(header, 0, 100);
+                    if (string(header, 257, 5).equals("ustar")) {
+                        final String prefix = string(header, 345, 155);
+                        if (!prefix.isEmpty()) {
+                            name = prefix + "/" + name;
+                        }
+                    }
+                }
+                if (type == 'L' || type == 'x') {
+                    // GNU long name or pax header, applies to the next entry
+                    final byte[] data = readData(in, size);
+                    if (type == 'L') {
+                        longName = string(data, 0, data.length);
+                    } else {
+                        paxHeaders = parsePax(data);
+                    }
+                    continue;
+                }
+                longName = null;
+                paxHeaders = Map.of();
+                if (!isRelative(name)) {
+                    // would be extracted outside the target directory, e.g. ../../x.py or /x.py
+                    LOGGER.warn("Skipping entry {} of {} outside the archive", name, archive);
+                    skip(in, padded(size));
+                    continue;
+                }
+                if (type == '0' || type == '\0' || type == '7') {
+                    final long lastModified = number(header, 136, 12) * 1000;
+                    addFile(name, size, lastModified, in);
+                } else if (type == '5') {
+                    node(name);
+                } else {
+                    // links, devices and global pax headers have no content to index
+                    skip(in, padded(size));
+                }
+            }
+        } finally {
+            if (spillOutput != null) {
+                spillOutput.close();
+            }
+        }
+    }
+
+    private void addFile(
+            @Nonnull String name,
+            long size,
+            long lastModified,
+            @Nonnull InputStream in)
+            throws IOException {
+        final Node node = node(name);
+        node.size = size;
+        node.lastModified = lastModified;
+        if (size <= MAX_FILE_IN_MEMORY && inMemory + size <= MEMORY_BUDGET) {
+            final byte[] content = readData(in, size);
+            inMemory += size;
+            node.content = () -> ByteBuffer.wrap(content);
+            return;
+        }
+        if (spillOutput == null) {
+            spillFile = Files.createTempFile("cbomkit-", ".tar.spill");
+            LOGGER.debug("Spilling large entries of {} to {}", archive, spillFile);
+            spillOutput = Files.newOutputStream(spillFile);
+        }
+        final Path file = spillFile;
+        final long offset = spilled;
+        final byte[] buffer = new byte[65536];
+        long remaining = size;
+        while (remaining > 0) {
+            final int read = in.readNBytes(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == 0) {
+                throw new IOException("Truncated tar entry " + name);
+            }
+            spillOutput.write(buffer, 0, read);
+            remaining -= read;
+        }
+        spilled += size;
+        skip(in, padded(size) - size);
+        node.content = () -> readSpilled(file, offset, size);
+    }
+
+    @Nonnull
+    private static ByteBuffer readSpilled(@Nonnull Path file, long offset, long size)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Truncated spill file " + file);
+                }
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static boolean isRelative(@Nonnull String name) {
+        if (name.startsWith("/")) {
+            return false;
+        }
+        for (String part : name.split("/")) {
+            if (part.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private Node node(@Nonnull String name) {
+        Node node = root;
+        for (String part : name.split("/")) {
+            if (!part.isEmpty() && !part.equals(".")) {
+                node = node.children.computeIfAbsent(part, key -> new Node());
+            }
+        }
+        return node;
+    }
+
+    // Lists the tarball as if it was extracted into the target directory
+    @Nonnull
+    DirectoryListing listing(@Nonnull Path target, @Nonnull Predicate<Path> directoryFilter) {
+        return listing(root, target, directoryFilter);
+    }
+
+    @Nonnull
+    private static DirectoryListing listing(
+            @Nonnull Node node, @Nonnull Path directory, @Nonnull Predicate<Path> filter) {
+        final List<DirectoryEntry> entries = new ArrayList<>(node.children.size());
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            final Path path = directory.resolve(child.getKey());
+            final Node childNode = child.getValue();
+            final FileTime lastModified = FileTime.fromMillis(childNode.lastModified);
+            if (childNode.content == null) {
+                final DirectoryListing listing =
+                        filter.test(path)
+                                ? listing(childNode, path, filter)
+                                : new DirectoryListing(path, List.of());
+                entries.add(
+                        new DirectoryEntry(
+                                path,
+                                new VirtualFileAttributes(true, () -> 0, lastModified),
+                                () -> listing));
+            } else {
+                entries.add(
+                        new DirectoryEntry(
+                                path,
+                                new VirtualFileAttributes(
+                                        false, () -> childNode.size, lastModified),
+                                null,
+                                childNode.content));
+            }
+        }
+        return new DirectoryListing(directory, entries);
+    }
+
+    @Nonnull
+    private static byte[] readData(@Nonnull InputStream in, long size) throws IOException {
+        final byte[] data = in.readNBytes(Math.toIntExact(size));
+        if (data.length != size) {
+            throw new IOException("Truncated tar entry");
+        }
+        skip(in, padded(size) - size);
+        return data;
+    }
+
+    private static long padded(long size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    private static void skip(@Nonnull InputStream in, long count) throws IOException {
+        in.skipNBytes(count);
+    }
+
+    private static boolean isZero(@Nonnull byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private static String string(@Nonnull byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, UTF_8);
+    }
+
+    // Octal, or big-endian base-256 if the high bit of the first byte is set (GNU)
+    private static long number(@Nonnull byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header[offset + i] & 0xff);
+            }
+            return value;
+        }
+        final String octal = string(header, offset, length).trim();
+        return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+    }
+
+    // "<length> <key>=<value>\n" records
+    @Nonnull
+    private static Map<String, String> parsePax(@Nonnull byte[] data) {
+        final Map<String, String> headers = new TreeMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            if (space == data.length) {
+                break;
+            }
+            final int length =
+                    Integer.parseInt(new String(data, position, space - position, UTF_8));
+            // without the length, the space and the trailing newline
+            final String record =
+                    new String(data, space + 1, length - (space - position) - 2, UTF_8);
+            final int equals = record.indexOf('=');
+            if (equals > 0) {
+                headers.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            position += length;
+        }
+        return headers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+            spillFile = null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.function.LongSupplier;
+
+// Attributes of a file or directory that only exists in an object database or an archive.
+// The size is computed on demand, since the indexer only needs it for the files it indexes.
+final class VirtualFileAttributes implements BasicFileAttributes {
+    private final boolean directory;
+    @Nonnull private final LongSupplier size;
+    @Nonnull private final FileTime lastModifiedTime;
+
+    VirtualFileAttributes(
+            boolean directory, @Nonnull LongSupplier size, @Nonnull FileTime lastModifiedTime) {
+        this.directory = directory;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return !directory;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return false;
+    }
+
+    @Override
+    public boolean isOther() {
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size.getAsLong();
+    }
+
+    @Nullable @Override
+    public Object fileKey() {
+        return null;
+    }
+}
@@ -21,20 +21,31 @@ package org.pqca.indexing.java;
 
 import jakarta.annotation.Nonnull;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.pqca.indexing.IBuildType;
+import org.pqca.indexing.IDirectoryListing;
 import org.pqca.indexing.IndexingService;
 import org.pqca.progress.IProgressDispatcher;
 
 public final class JavaIndexService extends IndexingService {
 
     public JavaIndexService(@Nonnull File baseDirectory) {
-        this(null, baseDirectory);
+        this(null, baseDirectory.toPath());
     }
 
     public JavaIndexService(
             @Nullable IProgressDispatcher progressDispatcher, @Nonnull File baseDirectory) {
+        this(progressDispatcher, baseDirectory.toPath());
+    }
+
+    public JavaIndexService(@Nonnull Path baseDirectory) {
+        this(null, baseDirectory);
+    }
+
+    public JavaIndexService(
+            @Nullable IProgressDispatcher progressDispatcher, @Nonnull Path baseDirectory) {
         super(progressDispatcher, baseDirectory, "java", ".java");
         this.setExcludePatterns(null);
     }
@@ -49,34 +60,68 @@ public final class JavaIndexService extends IndexingService {
     }
 
     @Override
-    public boolean isModule(@Nonnull File directory) {
-        if (!directory.isDirectory()) {
+    public boolean isModule(@Nonnull IDirectoryListing directory) {
+        if (!directory.contains("src")) {
             return false;
         }
-        final File srcFolder = new File(directory, "src");
         for (String buildFileName : List.of("pom.xml", "build.gradle", "build.gradle.kts")) {
-            final File file = new File(directory, buildFileName);
-            if (file.exists() && file.isFile() && srcFolder.exists()) {
+            if (directory.containsFile(buildFileName)) {
                 return true;
             }
         }
         return false;
     }
 
+    // Maven's target/classes and Gradle's build/classes/<language>/main; test classes are not
+    // part of the classpath of the main sources
     @Override
-    @Nullable public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
-        if (!directory.isDirectory()) {
-            return null;
+    protected boolean isClassDirectory(@Nonnull Path moduleDirectory, @Nonnull Path directory) {
+        final Path relative = moduleDirectory.relativize(directory);
+        if (relative.getNameCount() == 2) {
+            return relative.getName(0).toString().equals("target")
+                    && relative.getName(1).toString().equals("classes");
         }
+        return relative.getNameCount() == 4
+                && relative.getName(0).toString().equals("build")
+                && relative.getName(1).toString().equals("classes")
+                && relative.getName(3).toString().equals("main");
+    }
+
+    // Jars built into or copied to target/ and build/libs/, and dependencies in lib/ or libs/,
+    // but not attached source and javadoc jars. The jars of the Gradle and Maven wrappers,
+    // which unbuilt projects check in, are no build artifacts.
+    @Override
+    protected boolean isLibrary(@Nonnull Path moduleDirectory, @Nonnull Path file) {
+        final String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(".jar")
+                || fileName.endsWith("-sources.jar")
+                || fileName.endsWith("-javadoc.jar")) {
+            return false;
+        }
+        final Path relative = moduleDirectory.relativize(file);
+        if (relative.getNameCount() < 2
+                || relative.startsWith("gradle/wrapper")
+                || relative.startsWith(".mvn/wrapper")) {
+            return false;
+        }
+        return switch (relative.getName(0).toString()) {
+            case "target", "lib", "libs" -> true;
+            case "build" ->
+                    relative.getNameCount() > 2 && relative.getName(1).toString().equals("libs");
+            default -> false;
+        };
+    }
+
+    @Override
+    @Nullable public IBuildType getMainBuildTypeFromModuleDirectory(
+            @Nonnull IDirectoryListing directory) {
         // maven
-        final File pomFile = new File(directory, "pom.xml");
-        if (pomFile.exists() && pomFile.isFile()) {
+        if (directory.containsFile("pom.xml")) {
             return JavaBuildType.MAVEN;
         }
         // gradle
         for (String gradleFileName : List.of("build.gradle", "build.gradle.kts")) {
-            final File gradleFile = new File(directory, gradleFileName);
-            if (gradleFile.exists() && gradleFile.isFile()) {
+            if (directory.containsFile(gradleFileName)) {
                 return JavaBuildType.GRADLE;
             }
         }
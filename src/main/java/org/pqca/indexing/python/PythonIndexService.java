@@ -21,20 +21,40 @@ package org.pqca.indexing.python;
 
 import jakarta.annotation.Nonnull;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.pqca.indexing.IBuildType;
+import org.pqca.indexing.IDirectoryListing;
 import org.pqca.indexing.IndexingService;
 import org.pqca.progress.IProgressDispatcher;
 
 public final class PythonIndexService extends IndexingService {
+    private static final Set<String> DEPENDENCY_DIRECTORY_NAMES =
+            Set.of(
+                    "__pycache__",
+                    "site-packages",
+                    "dist-packages",
+                    "node_modules",
+                    ".tox",
+                    ".nox");
 
     public PythonIndexService(@Nonnull File baseDirectory) {
-        this(null, baseDirectory);
+        this(null, baseDirectory.toPath());
     }
 
     public PythonIndexService(
             @Nullable IProgressDispatcher progressDispatcher, @Nonnull File baseDirectory) {
+        this(progressDispatcher, baseDirectory.toPath());
+    }
+
+    public PythonIndexService(@Nonnull Path baseDirectory) {
+        this(null, baseDirectory);
+    }
+
+    public PythonIndexService(
+            @Nullable IProgressDispatcher progressDispatcher, @Nonnull Path baseDirectory) {
         super(progressDispatcher, baseDirectory, "python", ".py");
         this.setExcludePatterns(null);
     }
@@ -48,10 +68,9 @@ public final class PythonIndexService extends IndexingService {
     }
 
     @Override
-    public boolean isModule(@Nonnull File directory) {
+    public boolean isModule(@Nonnull IDirectoryListing directory) {
         for (String builFileName : List.of("pyproject.toml", "setup.cfg", "setup.py")) {
-            File f = new File(directory, builFileName);
-            if (f.exists() && f.isFile()) {
+            if (directory.containsFile(builFileName)) {
                 return true;
             }
         }
@@ -59,22 +78,33 @@ public final class PythonIndexService extends IndexingService {
     }
 
     @Nullable @Override
-    public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
-        if (!directory.isDirectory()) {
-            return null;
-        }
+    public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull IDirectoryListing directory) {
         // toml
-        final File tomlFile = new File(directory, "pyproject.toml");
-        if (tomlFile.exists() && tomlFile.isFile()) {
+        if (directory.containsFile("pyproject.toml")) {
             return PythonBuildType.TOML;
         }
         // setup
         for (String setupFileName : List.of("setup.cfg", "setup.py")) {
-            final File setupFile = new File(directory, setupFileName);
-            if (setupFile.exists() && setupFile.isFile()) {
+            if (directory.containsFile(setupFileName)) {
                 return PythonBuildType.SETUP;
             }
         }
         return null;
     }
+
+    @Override
+    protected boolean isDependencyDirectory(@Nonnull IDirectoryListing directory) {
+        final Path name = directory.directory().getFileName();
+        if (name != null && DEPENDENCY_DIRECTORY_NAMES.contains(name.toString())) {
+            return true;
+        }
+        // venv, virtualenv and conda environments, whatever they are called
+        if (directory.containsFile("pyvenv.cfg") || directory.containsDirectory("conda-meta")) {
+            return true;
+        }
+        // virtualenvs created before pyvenv.cfg existed
+        return directory.containsDirectory("lib")
+                && directory.containsDirectory("bin")
+                && directory.containsFile("pip-selfcheck.json");
+    }
 }
@@ -23,10 +23,19 @@ import com.ibm.mapper.model.INode;
 import jakarta.annotation.Nonnull;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.pqca.indexing.ProjectModule;
 
 public interface IScannerService extends Consumer<List<INode>> {
 
     @Nonnull
     ScanResultDTO scan(@Nonnull List<ProjectModule> index) throws Exception;
+
+    // Scans modules while they are being indexed, see IndexingService#indexAsStream
+    @Nonnull
+    default ScanResultDTO scan(@Nonnull Stream<ProjectModule> index) throws Exception {
+        try (index) {
+            return scan(index.toList());
+        }
+    }
 }
@@ -24,6 +24,19 @@ import jakarta.annotation.Nullable;
 public record ScanResultDTO(
         long startTime,
         long endTime,
-        int numberOfScannedLines,
-        int numberOfScannedFiles,
-        @Nullable CBOM cbom) {}
+        long numberOfScannedLines,
+        long numberOfScannedFiles,
+        long numberOfFallbackDecodedFiles,
+        long numberOfDuplicateFiles,
+        @Nullable CBOM cbom) {
+
+    // For callers from before the fallback decoding and duplicate counters, which are 0
+    public ScanResultDTO(
+            long startTime,
+            long endTime,
+            long numberOfScannedLines,
+            long numberOfScannedFiles,
+            @Nullable CBOM cbom) {
+        this(startTime, endTime, numberOfScannedLines, numberOfScannedFiles, 0, 0, cbom);
+    }
+}
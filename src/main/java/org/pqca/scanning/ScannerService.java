@@ -29,18 +29,32 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.cyclonedx.model.Bom;
 import org.cyclonedx.model.Component;
 import org.cyclonedx.model.Evidence;
 import org.cyclonedx.model.component.evidence.Occurrence;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.ProjectModule;
 import org.pqca.progress.IProgressDispatcher;
 import org.pqca.progress.ProgressMessage;
 import org.pqca.progress.ProgressMessageType;
@@ -49,11 +63,13 @@ import org.slf4j.LoggerFactory;
 
 public abstract class ScannerService implements IScannerService {
     protected static final Logger LOGGER = LoggerFactory.getLogger(ScannerService.class);
-
     @Nullable protected final IProgressDispatcher progressDispatcher;
     @Nonnull protected final File projectDirectory;
     @Nonnull protected final CBOMOutputFile cbomOutputFile;
     @Nonnull Set<Integer> findings;
+    // files that were not scanned because they have the same content as the key
+    @Nonnull private final Map<Path, List<Path>> duplicateFiles = new HashMap<>();
+    private int parallelism = 1;
 
     protected ScannerService(
             @Nullable IProgressDispatcher progressDispatcher, @Nonnull File projectDirectory) {
@@ -63,6 +79,18 @@ public abstract class ScannerService implements IScannerService {
         this.cbomOutputFile = new CBOMOutputFile();
     }
 
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    // Scans on up to this many threads, each with a frontend and detection rules of its own.
+    // Parsing and detection run in parallel. The sonar plugins collect every finding in static
+    // aggregators that are not thread-safe, so the findings of each task are handed to the
+    // plugin on the scanning thread, in the same order as by a serial scan.
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     public void accept(@Nonnull final List<INode> nodes) {
         synchronized (this) {
@@ -131,17 +159,141 @@ public abstract class ScannerService implements IScannerService {
         return Optional.empty();
     }
 
+    // The sonar frontends access source files as java.io.File, which modules indexed on a zip
+    // or an in-memory file system do not have
+    protected static void requireDefaultFileSystem(@Nonnull ProjectModule project) {
+        if (project.packagePath().getFileSystem() != FileSystems.getDefault()) {
+            throw new IllegalArgumentException(
+                    "Cannot scan "
+                            + project.identifier()
+                            + ": files must be on the default file system, index archives with"
+                            + " indexArchive or indexTarball");
+        }
+    }
+
+    // Records that duplicateFile was skipped because its content is the same as that of the
+    // scanned file. Findings in the latter are reported for both.
+    protected synchronized void addDuplicateFile(
+            @Nonnull Path scannedFile, @Nonnull Path duplicateFile) {
+        duplicateFiles
+                .computeIfAbsent(scannedFile.toAbsolutePath().normalize(), key -> new ArrayList<>())
+                .add(duplicateFile.toAbsolutePath().normalize());
+    }
+
     @Nonnull
     protected synchronized Optional<Bom> getBOM() {
         final Bom bom = this.cbomOutputFile.getBom();
+        if (!duplicateFiles.isEmpty()) {
+            bom.getComponents().forEach(this::copyOccurrencesToDuplicates);
+            duplicateFiles.clear();
+        }
         // sanitizeOccurrence
         bom.getComponents().forEach(component -> sanitizeOccurrence(projectDirectory, component));
-        // reset scanner
+        resetPlugin();
+
+        return Optional.of(bom);
+    }
+
+    // Clears the findings the sonar plugin collected during a scan
+    protected void resetPlugin() {
         final com.ibm.plugin.ScannerManager scannerMgr =
                 new com.ibm.plugin.ScannerManager(IOutputFileFactory.DEFAULT);
         scannerMgr.reset();
+    }
 
-        return Optional.of(bom);
+    // Copies are located in the same style (absolute or relative to the working directory)
+    // as the occurrence they are copied from
+    private void copyOccurrencesToDuplicates(@Nonnull Component component) {
+        final Evidence evidence = component.getEvidence();
+        if (evidence == null || evidence.getOccurrences() == null) {
+            return;
+        }
+        final List<Occurrence> occurrences = new ArrayList<>(evidence.getOccurrences());
+        for (Occurrence occurrence : evidence.getOccurrences()) {
+            if (occurrence.getLocation() == null) {
+                continue;
+            }
+            final Path location;
+            try {
+                location = Path.of(occurrence.getLocation());
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            final List<Path> duplicates =
+                    duplicateFiles.get(location.toAbsolutePath().normalize());
+            if (duplicates == null) {
+                continue;
+            }
+            for (Path duplicate : duplicates) {
+                final Occurrence copy = new Occurrence();
+                copy.setLocation(
+                        location.isAbsolute()
+                                ? duplicate.toString()
+                                : Path.of("").toAbsolutePath().relativize(duplicate).toString());
+                copy.setLine(occurrence.getLine());
+                copy.setOffset(occurrence.getOffset());
+                copy.setAdditionalContext(occurrence.getAdditionalContext());
+                occurrences.add(copy);
+            }
+        }
+        evidence.setOccurrences(occurrences);
+    }
+
+    // Runs tasks on a bounded pool and hands out their results in submission order. At most
+    // twice as many tasks as threads are pending, so results are not piling up while the
+    // oldest task is still running.
+    protected static final class OrderedTasks<T> implements AutoCloseable {
+        @Nonnull private final ExecutorService executor;
+        @Nonnull private final Deque<Future<T>> pending = new ArrayDeque<>();
+        private final int capacity;
+
+        public OrderedTasks(int parallelism) {
+            final int threads = Math.max(1, parallelism);
+            this.executor = Executors.newFixedThreadPool(threads);
+            this.capacity = 2 * threads;
+        }
+
+        public boolean isFull() {
+            return pending.size() >= capacity;
+        }
+
+        public boolean isEmpty() {
+            return pending.isEmpty();
+        }
+
+        public void submit(@Nonnull Callable<T> task) {
+            pending.add(executor.submit(task));
+        }
+
+        // Waits for the oldest task; its failure is rethrown
+        public T take() {
+            final Future<T> future = pending.remove();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while scanning");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                } else if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            // tasks still pending after a failure are abandoned
+            executor.shutdownNow();
+        }
+    }
+
+    // "(3/10)", or "(3)" while the number of modules is not known yet
+    @Nonnull
+    protected static String progressOf(int counter, int total) {
+        return total < 0 ? "(" + counter + ")" : "(" + counter + "/" + total + ")";
     }
 
     public static void sanitizeOccurrence(
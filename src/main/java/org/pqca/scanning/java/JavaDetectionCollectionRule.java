@@ -23,6 +23,7 @@ import com.ibm.engine.detection.Finding;
 import com.ibm.mapper.model.INode;
 import com.ibm.plugin.rules.JavaInventoryRule;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.util.List;
 import java.util.function.Consumer;
 import org.sonar.plugins.java.api.JavaCheck;
@@ -31,14 +32,37 @@ import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.Tree;
 
 public class JavaDetectionCollectionRule extends JavaInventoryRule {
-    private final Consumer<List<INode>> handler;
+    @Nullable private final Consumer<List<INode>> handler;
+    @Nullable private final Consumer<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>>
+            collector;
 
     public JavaDetectionCollectionRule(@Nonnull Consumer<List<INode>> findingConsumer) {
-        this.handler = findingConsumer;
+        this(findingConsumer, null);
+    }
+
+    private JavaDetectionCollectionRule(
+            @Nullable Consumer<List<INode>> handler,
+            @Nullable
+                    Consumer<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>> collector) {
+        this.handler = handler;
+        this.collector = collector;
+    }
+
+    // A rule for worker threads: findings are collected as detected and handed to the plugin
+    // later, by the update of a rule on the scanning thread, since the plugin is not
+    // thread-safe
+    @Nonnull
+    static JavaDetectionCollectionRule collecting(
+            @Nonnull Consumer<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>> collector) {
+        return new JavaDetectionCollectionRule(null, collector);
     }
 
     @Override
     public void update(@Nonnull Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext> finding) {
+        if (collector != null) {
+            collector.accept(finding);
+            return;
+        }
         super.update(finding);
         final List<INode> nodes = javaTranslationProcess.initiate(finding.detectionStore());
         handler.accept(nodes);
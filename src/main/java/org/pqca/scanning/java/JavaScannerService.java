@@ -19,16 +19,28 @@
  */
 package org.pqca.scanning.java;
 
+import com.ibm.engine.detection.Finding;
+import com.ibm.mapper.model.INode;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.errors.UncheckedClientDisconnected;
+import org.pqca.indexing.BuildArtifacts;
 import org.pqca.indexing.ProjectModule;
+import org.pqca.indexing.SourceDecoder;
 import org.pqca.progress.IProgressDispatcher;
 import org.pqca.progress.ProgressMessage;
 import org.pqca.progress.ProgressMessageType;
@@ -51,8 +63,12 @@ import org.sonar.java.classpath.ClasspathForMain;
 import org.sonar.java.classpath.ClasspathForTest;
 import org.sonar.java.model.JavaVersionImpl;
 import org.sonar.java.telemetry.NoOpTelemetry;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.Tree;
 
 public final class JavaScannerService extends ScannerService {
 
@@ -62,6 +78,7 @@ public final class JavaScannerService extends ScannerService {
     private List<String> javaDependencyJars = new ArrayList<String>();
     private List<String> javaClassDirectories = new ArrayList<String>();
     private boolean requireBuild = true;
+    @Nullable private MavenClasspathResolver mavenClasspathResolver;
 
     public JavaScannerService(@Nonnull File projectDirectory) {
         this(null, projectDirectory);
@@ -70,9 +87,6 @@ public final class JavaScannerService extends ScannerService {
     public JavaScannerService(
             @Nullable IProgressDispatcher progressDispatcher, @Nonnull File projectDirectory) {
         super(progressDispatcher, projectDirectory);
-
-        // this.javaDependencyJars = findJars();
-        // this.targetClassDirectories = findClassDirs();
     }
 
     public List<String> getJavaDependencyJars() {
@@ -120,27 +134,222 @@ public final class JavaScannerService extends ScannerService {
         this.requireBuild = requireBuild;
     }
 
+    @Nullable public MavenClasspathResolver getMavenClasspathResolver() {
+        return this.mavenClasspathResolver;
+    }
+
+    // Adds the dependencies of Maven modules, resolved from the local repository, to their
+    // classpath; no need to pass the output of mvn dependency:build-classpath as jars
+    public void setMavenClasspathResolver(@Nullable MavenClasspathResolver resolver) {
+        this.mavenClasspathResolver = resolver;
+    }
+
     @Override
     @Nonnull
     public synchronized ScanResultDTO scan(@Nonnull List<ProjectModule> index)
             throws ClientDisconnected {
-        if (!index.isEmpty() && (javaDependencyJars.isEmpty() && javaClassDirectories.isEmpty())) {
-            if (this.requireBuild) {
-                throw new IllegalStateException(
-                        "No Java build artifacts found. Project must be built prior to scanning");
-            } else {
-                LOGGER.warn(
-                        "No Java build artifacts found. Scanning Java code without prior build may produce less accurate CBOMs.");
+        LOGGER.info("Start scanning {} java projects", index.size());
+        return scan(index.iterator(), index.size());
+    }
+
+    @Override
+    @Nonnull
+    public synchronized ScanResultDTO scan(@Nonnull Stream<ProjectModule> index)
+            throws ClientDisconnected {
+        LOGGER.info("Start scanning java projects");
+        try (index) {
+            return scan(index.iterator(), -1);
+        } catch (UncheckedClientDisconnected e) {
+            throw e.getCause();
+        }
+    }
+
+    @Nonnull
+    private ScanResultDTO scan(@Nonnull Iterator<ProjectModule> index, int numberOfProjects)
+            throws ClientDisconnected {
+        final SourceDecoder sourceDecoder = new SourceDecoder();
+        long scanTimeStart = System.currentTimeMillis();
+        int counter = 1;
+        // lines are counted as the frontends load the files, from any thread
+        final LongAdder numberOfScannedLines = new LongAdder();
+        long numberOfScannedFiles = 0;
+        boolean warnedAboutBuild = false;
+        JavaFrontend sharedFrontend = null;
+        // the project counts as built if any of its modules is; until then findings are held
+        // back, so that a project that was not built fails without leaving findings behind
+        boolean built =
+                !this.requireBuild
+                        || !javaDependencyJars.isEmpty()
+                        || !javaClassDirectories.isEmpty();
+        final List<List<INode>> pendingFindings = new ArrayList<>();
+        // translates the findings of parallel tasks on this thread
+        final JavaDetectionCollectionRule rule =
+                new JavaDetectionCollectionRule(pendingFindings::add);
+        final Iterator<ResolvedModule> modules =
+                StreamSupport.stream(
+                                Spliterators.spliteratorUnknownSize(index, Spliterator.ORDERED),
+                                false)
+                        .filter(project -> !project.lazyInputFileList().isEmpty())
+                        .map(this::resolve)
+                        .iterator();
+        try (OrderedTasks<List<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>>>
+                tasks = getParallelism() > 1 ? new OrderedTasks<>(getParallelism()) : null) {
+            while (modules.hasNext()) {
+                final ResolvedModule module = modules.next();
+                final ProjectModule project = module.project();
+                requireDefaultFileSystem(project);
+                final BuildArtifacts buildArtifacts = project.buildArtifacts();
+                final List<Path> dependencies = module.dependencies();
+                if (hasBuildArtifacts(module)) {
+                    built = true;
+                } else if (!this.requireBuild && !warnedAboutBuild) {
+                    LOGGER.warn(
+                            "No Java build artifacts found. Scanning Java code without prior build may produce less accurate CBOMs.");
+                    warnedAboutBuild = true;
+                }
+                final List<String> libraries =
+                        withPaths(
+                                javaDependencyJars,
+                                Stream.concat(
+                                                buildArtifacts.libraries().stream(),
+                                                dependencies.stream())
+                                        .toList());
+                final List<String> binaries =
+                        withPaths(javaClassDirectories, buildArtifacts.classDirectories());
+                numberOfScannedFiles += project.lazyInputFileList().size();
+
+                final String projectStr =
+                        project.identifier() + " " + progressOf(counter, numberOfProjects);
+                if (this.progressDispatcher != null) {
+                    this.progressDispatcher.send(
+                            new ProgressMessage(
+                                    ProgressMessageType.LABEL,
+                                    "Scanning java project " + projectStr));
+                }
+                LOGGER.info("Scanning java project {}", projectStr);
+                if (tasks != null) {
+                    // every module gets a frontend of its own; its findings are collected
+                    // and added in module order
+                    if (tasks.isFull()) {
+                        tasks.take().forEach(rule::update);
+                    }
+                    tasks.submit(
+                            () ->
+                                    scanModule(
+                                            project.inputFileList(
+                                                    sourceDecoder, numberOfScannedLines::add),
+                                            libraries,
+                                            binaries));
+                } else if (buildArtifacts.isEmpty() && dependencies.isEmpty()) {
+                    // modules without build artifacts or resolved dependencies of their own
+                    // share one frontend, all others are analyzed against their own classpath
+                    if (sharedFrontend == null) {
+                        sharedFrontend =
+                                newJavaFrontend(
+                                        libraries,
+                                        binaries,
+                                        new JavaDetectionCollectionRule(pendingFindings::add));
+                    }
+                    sharedFrontend.scan(
+                            project.inputFileList(sourceDecoder, numberOfScannedLines::add),
+                            List.of(),
+                            List.of());
+                } else {
+                    newJavaFrontend(
+                                    libraries,
+                                    binaries,
+                                    new JavaDetectionCollectionRule(pendingFindings::add))
+                            .scan(
+                                    project.inputFileList(
+                                            sourceDecoder, numberOfScannedLines::add),
+                                    List.of(),
+                                    List.of());
+                }
+                if (built) {
+                    addFindings(pendingFindings);
+                }
+                counter++;
+            }
+            while (tasks != null && !tasks.isEmpty()) {
+                tasks.take().forEach(rule::update);
             }
         }
+        if (!built && counter > 1) {
+            resetPlugin();
+            throw new IllegalStateException(
+                    "No Java build artifacts found. Project must be built prior to scanning");
+        }
+        addFindings(pendingFindings);
+        LOGGER.info("Scanned {} java projects", counter - 1);
+        if (mavenClasspathResolver != null) {
+            try {
+                mavenClasspathResolver.writeCache();
+            } catch (IOException iox) {
+                LOGGER.warn("Could not write the classpath cache: {}", iox.getMessage());
+            }
+        }
+
+        return new ScanResultDTO(
+                scanTimeStart,
+                System.currentTimeMillis(),
+                numberOfScannedLines.sum(),
+                numberOfScannedFiles,
+                sourceDecoder.getNumberOfFallbackDecodedFiles(),
+                0,
+                this.getBOM().map(CBOM::new).orElse(null));
+    }
+
+    // A module to scan, with the dependencies resolved for it; modules that only list deleted
+    // files are not scanned at all
+    private record ResolvedModule(
+            @Nonnull ProjectModule project, @Nonnull List<Path> dependencies) {}
 
+    @Nonnull
+    private ResolvedModule resolve(@Nonnull ProjectModule project) {
+        return new ResolvedModule(
+                project,
+                mavenClasspathResolver != null
+                        ? mavenClasspathResolver.resolve(project.packagePath())
+                        : List.of());
+    }
+
+    private boolean hasBuildArtifacts(@Nonnull ResolvedModule module) {
+        return !module.project().buildArtifacts().isEmpty()
+                || !module.dependencies().isEmpty()
+                || !javaDependencyJars.isEmpty()
+                || !javaClassDirectories.isEmpty();
+    }
+
+    private void addFindings(@Nonnull List<List<INode>> findings) {
+        findings.forEach(this);
+        findings.clear();
+    }
+
+    // Runs on a worker thread; the findings are handed to the plugin by the scanning thread
+    @Nonnull
+    private List<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>> scanModule(
+            @Nonnull List<InputFile> inputFiles,
+            @Nonnull List<String> libraries,
+            @Nonnull List<String> binaries) {
+        final List<Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext>> findings =
+                new ArrayList<>();
+        newJavaFrontend(libraries, binaries, JavaDetectionCollectionRule.collecting(findings::add))
+                .scan(inputFiles, List.of(), List.of());
+        return findings;
+    }
+
+    @Nonnull
+    private JavaFrontend newJavaFrontend(
+            @Nonnull List<String> libraries,
+            @Nonnull List<String> binaries,
+            @Nonnull JavaDetectionCollectionRule rule) {
         final SensorContextTester sensorContext = SensorContextTester.create(projectDirectory);
         sensorContext.setSettings(
                 new MapSettings()
                         .setProperty(SonarComponents.SONAR_BATCH_MODE_KEY, true)
                         // .setProperty("sonar.java.jdkHome", System.getProperty("java.home"))
-                        .setProperty("sonar.java.libraries", String.join(",", javaDependencyJars))
-                        .setProperty("sonar.java.binaries", String.join(",", javaClassDirectories))
+                        .setProperty("sonar.java.libraries", String.join(",", libraries))
+                        .setProperty("sonar.java.binaries", String.join(",", binaries))
                         .setProperty(SonarComponents.SONAR_AUTOSCAN, false)
                         .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 8 * 1024 * 1024));
         final DefaultFileSystem fileSystem = sensorContext.fileSystem();
@@ -151,48 +360,28 @@ public final class JavaScannerService extends ScannerService {
         final SonarComponents sonarComponents =
                 getSonarComponents(fileSystem, classpathForMain, classpathForTest);
         sonarComponents.setSensorContext(sensorContext);
-        LOGGER.info("Start scanning {} java projects", index.size());
 
         final JavaResourceLocator javaResourceLocator =
                 new DefaultJavaResourceLocator(classpathForMain, classpathForTest);
-        final JavaFrontend javaFrontend =
-                new JavaFrontend(
-                        JAVA_VERSION,
-                        sonarComponents,
-                        getMeasurer(sensorContext),
-                        new NoOpTelemetry(),
-                        javaResourceLocator,
-                        null,
-                        new JavaDetectionCollectionRule(this));
+        return new JavaFrontend(
+                JAVA_VERSION,
+                sonarComponents,
+                getMeasurer(sensorContext),
+                new NoOpTelemetry(),
+                javaResourceLocator,
+                null,
+                rule);
+    }
 
-        long scanTimeStart = System.currentTimeMillis();
-        int counter = 1;
-        int numberOfScannedLines = 0;
-        int numberOfScannedFiles = 0;
-        for (ProjectModule project : index) {
-            numberOfScannedFiles += project.inputFileList().size();
-            numberOfScannedLines +=
-                    project.inputFileList().stream().mapToInt(InputFile::lines).sum();
-
-            final String projectStr =
-                    project.identifier() + " (" + counter + "/" + index.size() + ")";
-            if (this.progressDispatcher != null) {
-                this.progressDispatcher.send(
-                        new ProgressMessage(
-                                ProgressMessageType.LABEL, "Scanning java project " + projectStr));
-            }
-            LOGGER.info("Scanning java project {}", projectStr);
-            javaFrontend.scan(project.inputFileList(), List.of(), List.of());
-            counter++;
+    // Sonar needs absolute paths
+    @Nonnull
+    private static List<String> withPaths(
+            @Nonnull List<String> entries, @Nonnull List<Path> paths) {
+        final List<String> classpath = new ArrayList<>(entries);
+        for (Path path : paths) {
+            classpath.add(path.toAbsolutePath().normalize().toString());
         }
-        LOGGER.info("Scanned {} java projects", index.size());
-
-        return new ScanResultDTO(
-                scanTimeStart,
-                System.currentTimeMillis(),
-                numberOfScannedLines,
-                numberOfScannedFiles,
-                this.getBOM().map(CBOM::new).orElse(null));
+        return classpath;
     }
 
     @Nonnull
@@ -239,30 +428,4 @@ public final class JavaScannerService extends ScannerService {
                     }
                 });
     }
-
-    // private String findClassDirs() {
-    //     try (Stream<Path> stream = Files.walk(this.projectDirectory.toPath())) {
-    //         return String.join(
-    //                 ",",
-    //                 stream.filter(Files::isDirectory)
-    //                         .filter(path -> path.endsWith("classes"))
-    //                         .map(path -> path.toAbsolutePath().toString())
-    //                         .collect(Collectors.joining(",")));
-    //     } catch (Exception e) {
-    //         return null;
-    //     }
-    // }
-
-    // private String findJars() {
-    //     try (Stream<Path> stream = Files.walk(this.projectDirectory.toPath())) {
-    //         return String.join(
-    //                 ",",
-    //                 stream.filter(Files::isRegularFile)
-    //                         .filter(path -> path.toString().toLowerCase().endsWith(".jar"))
-    //                         .map(path -> path.toAbsolutePath().toString())
-    //                         .collect(Collectors.joining(",")));
-    //     } catch (Exception e) {
-    //         return null;
-    //     }
-    // }
 }
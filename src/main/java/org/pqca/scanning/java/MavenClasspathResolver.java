@@ -0,0 +1,749 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning.java;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+// Resolves the compile classpath of a Maven module from the local repository only, without
+// running Maven and without network access. The pom.xml is read with its parents and imported
+// BOMs, and its compile and provided dependencies are resolved transitively, the nearest
+// declaration winning. Artifacts missing from the local repository are left out; profiles are
+// not evaluated and of version ranges only the lower bound is used.
+//
+// Resolved classpaths are cached by the hash of the module's pom.xml and its parents within the
+// project; a module whose poms did not change is not resolved again as long as its artifacts
+// are still in, and its missing artifacts are still missing from, the local repository.
+public final class MavenClasspathResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavenClasspathResolver.class);
+
+    private static final int MAGIC = 0x43424d43; // CBMC
+    private static final int VERSION = 2;
+    private static final int MAX_DEPTH = 32;
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Set<String> CLASSPATH_SCOPES = Set.of("compile", "provided");
+    // types whose artifact is a jar on the classpath
+    private static final Set<String> JAR_TYPES =
+            Set.of("jar", "bundle", "ejb", "maven-plugin", "test-jar");
+
+    private record Dependency(
+            @Nonnull String groupId,
+            @Nonnull String artifactId,
+            @Nonnull String version,
+            @Nonnull String type,
+            @Nonnull String classifier,
+            @Nonnull String scope,
+            boolean optional,
+            @Nonnull List<String> exclusions) {
+
+        @Nonnull
+        String key() {
+            return groupId + ":" + artifactId + ":" + type + ":" + classifier;
+        }
+
+        @Nonnull
+        Dependency interpolate(@Nonnull Map<String, String> properties) {
+            return new Dependency(
+                    MavenClasspathResolver.interpolate(groupId, properties),
+                    MavenClasspathResolver.interpolate(artifactId, properties),
+                    MavenClasspathResolver.interpolate(version, properties),
+                    MavenClasspathResolver.interpolate(type, properties),
+                    MavenClasspathResolver.interpolate(classifier, properties),
+                    MavenClasspathResolver.interpolate(scope, properties),
+                    optional,
+                    exclusions);
+        }
+
+        @Nonnull
+        Dependency with(@Nonnull String version, @Nonnull String scope) {
+            return new Dependency(
+                    groupId, artifactId, version, type, classifier, scope, optional, exclusions);
+        }
+    }
+
+    private record Parent(
+            @Nonnull String groupId,
+            @Nonnull String artifactId,
+            @Nonnull String version,
+            @Nullable String relativePath) {}
+
+    // a pom.xml as written
+    private record Pom(
+            @Nonnull String groupId,
+            @Nonnull String artifactId,
+            @Nonnull String version,
+            @Nullable Parent parent,
+            @Nonnull Map<String, String> properties,
+            @Nonnull List<Dependency> dependencies,
+            @Nonnull List<Dependency> managedDependencies) {}
+
+    // a pom.xml with its parents and imported BOMs applied; missing lists the parent and BOM
+    // poms that were not found in the local repository
+    private record Model(
+            @Nonnull String groupId,
+            @Nonnull String artifactId,
+            @Nonnull String version,
+            @Nonnull Map<String, String> properties,
+            @Nonnull List<Dependency> dependencies,
+            @Nonnull Map<String, Dependency> managedDependencies,
+            @Nonnull List<Path> missing) {}
+
+    private record Cached(
+            @Nonnull String hash,
+            @Nonnull List<Path> poms,
+            @Nonnull List<Path> classpath,
+            @Nonnull List<Path> missing) {}
+
+    private record Node(@Nonnull Dependency dependency, @Nonnull Set<String> exclusions) {}
+
+    @Nonnull private final Path localRepository;
+    // poms in the local repository do not change, their models are kept for all modules
+    @Nonnull private final Map<Path, Model> repositoryModels = new HashMap<>();
+    @Nonnull private final Map<String, Cached> cache = new HashMap<>();
+    @Nullable private Path cacheFile;
+    private boolean cacheLoaded = false;
+    private boolean cacheChanged = false;
+
+    public MavenClasspathResolver() {
+        this(defaultLocalRepository());
+    }
+
+    public MavenClasspathResolver(@Nonnull Path localRepository) {
+        this.localRepository = localRepository.toAbsolutePath().normalize();
+    }
+
+    // The repository Maven itself would use, unless configured in a settings.xml
+    @Nonnull
+    public static Path defaultLocalRepository() {
+        final String configured = System.getProperty("maven.repo.local");
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured);
+        }
+        return Path.of(System.getProperty("user.home"), ".m2", "repository");
+    }
+
+    @Nonnull
+    public Path getLocalRepository() {
+        return localRepository;
+    }
+
+    // Keeps resolved classpaths across runs, written by writeCache
+    public synchronized void setCacheFile(@Nullable Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.cacheLoaded = false;
+    }
+
+    // The jars on the compile classpath of the module, empty if it has no pom.xml
+    @Nonnull
+    public synchronized List<Path> resolve(@Nonnull Path moduleDirectory) {
+        final Path pom = moduleDirectory.resolve("pom.xml").toAbsolutePath().normalize();
+        if (!Files.isRegularFile(pom)) {
+            return List.of();
+        }
+        loadCache();
+        final Cached cached = cache.get(pom.toString());
+        if (cached != null && isUpToDate(cached)) {
+            LOGGER.debug("Using cached classpath of {}", pom);
+            return cached.classpath();
+        }
+        final List<Path> projectPoms = new ArrayList<>();
+        final Model model = model(pom, projectPoms, 0);
+        if (model == null) {
+            return List.of();
+        }
+        final Set<Path> missing = new LinkedHashSet<>(model.missing());
+        final List<Path> classpath = resolveDependencies(model, missing);
+        if (!missing.isEmpty()) {
+            LOGGER.debug(
+                    "{} artifacts of {} are not in the local repository", missing.size(), pom);
+        }
+        cache.put(
+                pom.toString(),
+                new Cached(
+                        hash(projectPoms),
+                        List.copyOf(projectPoms),
+                        classpath,
+                        List.copyOf(missing)));
+        cacheChanged = true;
+        LOGGER.info("Resolved {} jars for {}", classpath.size(), pom);
+        return classpath;
+    }
+
+    private boolean isUpToDate(@Nonnull Cached cached) {
+        return cached.hash().equals(hash(cached.poms()))
+                && cached.classpath().stream().allMatch(Files::isRegularFile)
+                && cached.missing().stream().noneMatch(Files::exists);
+    }
+
+    // Breadth first, so that the nearest declaration of an artifact wins
+    @Nonnull
+    private List<Path> resolveDependencies(@Nonnull Model root, @Nonnull Set<Path> missing) {
+        final Set<Path> classpath = new LinkedHashSet<>();
+        final Set<String> seen = new HashSet<>();
+        final Queue<Node> queue = new ArrayDeque<>();
+        for (Dependency declared : root.dependencies()) {
+            final Dependency dependency = manage(declared, root, root);
+            if (CLASSPATH_SCOPES.contains(dependency.scope()) && seen.add(dependency.key())) {
+                queue.add(new Node(dependency, Set.copyOf(dependency.exclusions())));
+            }
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            final Dependency dependency = node.dependency();
+            final String version = version(dependency.version());
+            if (version == null) {
+                LOGGER.debug("Cannot resolve the version of {}", dependency.key());
+                continue;
+            }
+            if (JAR_TYPES.contains(dependency.type())) {
+                final String classifier =
+                        dependency.type().equals("test-jar") && dependency.classifier().isEmpty()
+                                ? "tests"
+                                : dependency.classifier();
+                final Path jar = artifact(dependency, version, classifier, "jar");
+                if (Files.isRegularFile(jar)) {
+                    classpath.add(jar);
+                } else {
+                    missing.add(jar);
+                }
+            }
+            final Path pom = artifact(dependency, version, "", "pom");
+            if (!Files.isRegularFile(pom)) {
+                missing.add(pom);
+                continue;
+            }
+            final Model model = model(pom, new ArrayList<>(), 0);
+            if (model == null) {
+                continue;
+            }
+            missing.addAll(model.missing());
+            for (Dependency declared : model.dependencies()) {
+                if (declared.optional() || isExcluded(declared, node.exclusions())) {
+                    continue;
+                }
+                final Dependency transitive = manage(declared, model, root);
+                if (!transitive.scope().equals("compile") || !seen.add(transitive.key())) {
+                    continue;
+                }
+                // the dependency management of the resolved module also overrides the scope of
+                // a transitive dependency, e.g. to keep it off the classpath as test scoped
+                final Dependency rootManaged = root.managedDependencies().get(transitive.key());
+                final Dependency scoped =
+                        rootManaged != null && !rootManaged.scope().isEmpty()
+                                ? transitive.with(transitive.version(), rootManaged.scope())
+                                : transitive;
+                if (CLASSPATH_SCOPES.contains(scoped.scope())) {
+                    final Set<String> exclusions = new HashSet<>(node.exclusions());
+                    exclusions.addAll(scoped.exclusions());
+                    queue.add(new Node(scoped, exclusions));
+                }
+            }
+        }
+        return List.copyOf(classpath);
+    }
+
+    // The dependency management of the resolved module overrides the versions of transitive
+    // dependencies; otherwise that of the declaring pom fills in missing versions and scopes.
+    @Nonnull
+    private static Dependency manage(
+            @Nonnull Dependency dependency, @Nonnull Model owner, @Nonnull Model root) {
+        final Dependency rootManaged = root.managedDependencies().get(dependency.key());
+        final Dependency ownManaged = owner.managedDependencies().get(dependency.key());
+        String version = dependency.version();
+        if (owner != root && rootManaged != null && !rootManaged.version().isEmpty()) {
+            version = rootManaged.version();
+        } else if (version.isEmpty() && ownManaged != null) {
+            version = ownManaged.version();
+        }
+        String scope = dependency.scope();
+        if (scope.isEmpty() && ownManaged != null) {
+            scope = ownManaged.scope();
+        }
+        return dependency.with(version, scope.isEmpty() ? "compile" : scope);
+    }
+
+    private static boolean isExcluded(
+            @Nonnull Dependency dependency, @Nonnull Set<String> exclusions) {
+        return exclusions.contains(dependency.groupId() + ":" + dependency.artifactId())
+                || exclusions.contains(dependency.groupId() + ":*")
+                || exclusions.contains("*:" + dependency.artifactId())
+                || exclusions.contains("*:*");
+    }
+
+    // Uses the exact version, or the inclusive lower bound of a range
+    @Nullable private static String version(@Nonnull String version) {
+        if (version.isEmpty() || version.contains("${") || version.startsWith("(")) {
+            return null;
+        }
+        if (!version.startsWith("[")) {
+            return version;
+        }
+        int end = 1;
+        while (end < version.length() && version.charAt(end) != ',' && version.charAt(end) != ']') {
+            end++;
+        }
+        final String lowerBound = version.substring(1, end).trim();
+        return lowerBound.isEmpty() ? null : lowerBound;
+    }
+
+    @Nonnull
+    private Path artifact(
+            @Nonnull Dependency dependency,
+            @Nonnull String version,
+            @Nonnull String classifier,
+            @Nonnull String extension) {
+        return artifact(
+                dependency.groupId(), dependency.artifactId(), version, classifier, extension);
+    }
+
+    @Nonnull
+    private Path artifact(
+            @Nonnull String groupId,
+            @Nonnull String artifactId,
+            @Nonnull String version,
+            @Nonnull String classifier,
+            @Nonnull String extension) {
+        final String fileName =
+                artifactId
+                        + "-"
+                        + version
+                        + (classifier.isEmpty() ? "" : "-" + classifier)
+                        + "."
+                        + extension;
+        return localRepository
+                .resolve(groupId.replace('.', '/'))
+                .resolve(artifactId)
+                .resolve(version)
+                .resolve(fileName);
+    }
+
+    // Reads a pom with its parents and imported BOMs. Poms outside the local repository are
+    // collected in projectPoms, they make up the cache key.
+    @Nullable private Model model(
+            @Nonnull Path pomFile, @Nonnull List<Path> projectPoms, int depth) {
+        final boolean inRepository = pomFile.startsWith(localRepository);
+        if (inRepository && repositoryModels.containsKey(pomFile)) {
+            return repositoryModels.get(pomFile);
+        }
+        if (depth > MAX_DEPTH) {
+            LOGGER.warn("Too many parents or imports at {}", pomFile);
+            return null;
+        }
+        if (!inRepository) {
+            projectPoms.add(pomFile);
+        }
+        final Pom pom = read(pomFile);
+        if (pom == null) {
+            if (inRepository) {
+                repositoryModels.put(pomFile, null);
+            }
+            return null;
+        }
+        final Set<Path> missing = new LinkedHashSet<>();
+        Model parent = null;
+        if (pom.parent() != null) {
+            final Path parentFile = parentPom(pomFile, pom.parent());
+            if (Files.isRegularFile(parentFile)) {
+                parent = model(parentFile, projectPoms, depth + 1);
+            } else {
+                missing.add(parentFile);
+            }
+            if (parent == null) {
+                LOGGER.debug("Parent of {} not found", pomFile);
+            } else {
+                missing.addAll(parent.missing());
+            }
+        }
+
+        final Map<String, String> properties = new HashMap<>();
+        if (parent != null) {
+            properties.putAll(parent.properties());
+        }
+        properties.putAll(pom.properties());
+        String groupId = pom.groupId();
+        String version = pom.version();
+        if (pom.parent() != null) {
+            final Parent declared = pom.parent();
+            properties.put("project.parent.groupId", declared.groupId());
+            properties.put("project.parent.artifactId", declared.artifactId());
+            properties.put("project.parent.version", declared.version());
+            if (groupId.isEmpty()) {
+                groupId = parent != null ? parent.groupId() : declared.groupId();
+            }
+            if (version.isEmpty()) {
+                version = parent != null ? parent.version() : declared.version();
+            }
+        }
+        groupId = interpolate(groupId, properties);
+        version = interpolate(version, properties);
+        for (String prefix : new String[] {"project.", "pom."}) {
+            properties.put(prefix + "groupId", groupId);
+            properties.put(prefix + "artifactId", pom.artifactId());
+            properties.put(prefix + "version", version);
+        }
+
+        // own entries before those of the parents, which come before imported BOMs
+        final Map<String, Dependency> managed = new LinkedHashMap<>();
+        final List<Dependency> imports = new ArrayList<>();
+        for (Dependency declared : pom.managedDependencies()) {
+            final Dependency dependency = declared.interpolate(properties);
+            if (dependency.scope().equals("import") && dependency.type().equals("pom")) {
+                imports.add(dependency);
+            } else {
+                managed.putIfAbsent(dependency.key(), dependency);
+            }
+        }
+        if (parent != null) {
+            parent.managedDependencies().forEach(managed::putIfAbsent);
+        }
+        for (Dependency bom : imports) {
+            final String bomVersion = version(bom.version());
+            Model imported = null;
+            if (bomVersion != null) {
+                final Path bomFile = artifact(bom, bomVersion, "", "pom");
+                if (Files.isRegularFile(bomFile)) {
+                    imported = model(bomFile, projectPoms, depth + 1);
+                } else {
+                    missing.add(bomFile);
+                }
+            }
+            if (imported == null) {
+                LOGGER.debug("BOM {} of {} not found", bom.key(), pomFile);
+            } else {
+                imported.managedDependencies().forEach(managed::putIfAbsent);
+                missing.addAll(imported.missing());
+            }
+        }
+
+        final Map<String, Dependency> dependencies = new LinkedHashMap<>();
+        if (parent != null) {
+            parent.dependencies()
+                    .forEach(dependency -> dependencies.put(dependency.key(), dependency));
+        }
+        for (Dependency declared : pom.dependencies()) {
+            final Dependency dependency = declared.interpolate(properties);
+            dependencies.put(dependency.key(), dependency);
+        }
+        final Model model =
+                new Model(
+                        groupId,
+                        pom.artifactId(),
+                        version,
+                        properties,
+                        List.copyOf(dependencies.values()),
+                        managed,
+                        List.copyOf(missing));
+        if (inRepository) {
+            repositoryModels.put(pomFile, model);
+        }
+        return model;
+    }
+
+    // The parent within the project at its relative path, which defaults to ../pom.xml, or
+    // else the one in the local repository, which may be missing
+    @Nonnull
+    private Path parentPom(@Nonnull Path pomFile, @Nonnull Parent parent) {
+        final String relativePath = parent.relativePath();
+        if (relativePath == null || !relativePath.isEmpty()) {
+            Path candidate =
+                    pomFile.resolveSibling(relativePath == null ? "../pom.xml" : relativePath)
+                            .normalize();
+            if (Files.isDirectory(candidate)) {
+                candidate = candidate.resolve("pom.xml");
+            }
+            if (Files.isRegularFile(candidate)) {
+                final Pom pom = read(candidate);
+                if (pom != null
+                        && pom.artifactId().equals(parent.artifactId())
+                        && (pom.groupId().isEmpty() || pom.groupId().equals(parent.groupId()))) {
+                    return candidate;
+                }
+            }
+        }
+        return artifact(parent.groupId(), parent.artifactId(), parent.version(), "", "pom");
+    }
+
+    @Nullable private static Pom read(@Nonnull Path pomFile) {
+        final Element project;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(pomFile))) {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            project = factory.newDocumentBuilder().parse(in).getDocumentElement();
+        } catch (IOException | ParserConfigurationException | SAXException e) {
+            LOGGER.debug("Could not read {}: {}", pomFile, e.getMessage());
+            return null;
+        }
+
+        Parent parent = null;
+        final Element parentElement = child(project, "parent");
+        if (parentElement != null) {
+            final Element relativePath = child(parentElement, "relativePath");
+            parent =
+                    new Parent(
+                            text(parentElement, "groupId"),
+                            text(parentElement, "artifactId"),
+                            text(parentElement, "version"),
+                            relativePath == null ? null : relativePath.getTextContent().trim());
+        }
+        final Map<String, String> properties = new HashMap<>();
+        final Element propertiesElement = child(project, "properties");
+        if (propertiesElement != null) {
+            for (Element property : children(propertiesElement, null)) {
+                properties.put(property.getTagName(), property.getTextContent().trim());
+            }
+        }
+        final Element management = child(project, "dependencyManagement");
+        return new Pom(
+                text(project, "groupId"),
+                text(project, "artifactId"),
+                text(project, "version"),
+                parent,
+                properties,
+                dependencies(project),
+                management == null ? List.of() : dependencies(management));
+    }
+
+    @Nonnull
+    private static List<Dependency> dependencies(@Nonnull Element element) {
+        final Element dependenciesElement = child(element, "dependencies");
+        if (dependenciesElement == null) {
+            return List.of();
+        }
+        final List<Dependency> dependencies = new ArrayList<>();
+        for (Element dependency : children(dependenciesElement, "dependency")) {
+            final List<String> exclusions = new ArrayList<>();
+            final Element exclusionsElement = child(dependency, "exclusions");
+            if (exclusionsElement != null) {
+                for (Element exclusion : children(exclusionsElement, "exclusion")) {
+                    exclusions.add(
+                            text(exclusion, "groupId") + ":" + text(exclusion, "artifactId"));
+                }
+            }
+            final String type = text(dependency, "type");
+            dependencies.add(
+                    new Dependency(
+                            text(dependency, "groupId"),
+                            text(dependency, "artifactId"),
+                            text(dependency, "version"),
+                            type.isEmpty() ? "jar" : type,
+                            text(dependency, "classifier"),
+                            text(dependency, "scope"),
+                            text(dependency, "optional").equals("true"),
+                            List.copyOf(exclusions)));
+        }
+        return dependencies;
+    }
+
+    @Nullable private static Element child(@Nonnull Element element, @Nonnull String name) {
+        final List<Element> children = children(element, name);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    // direct child elements only: dependencies of plugins must not be mistaken for those of
+    // the project
+    @Nonnull
+    private static List<Element> children(@Nonnull Element element, @Nullable String name) {
+        final List<Element> children = new ArrayList<>();
+        for (org.w3c.dom.Node node = element.getFirstChild();
+                node != null;
+                node = node.getNextSibling()) {
+            if (node instanceof Element child
+                    && (name == null || child.getTagName().equals(name))) {
+                children.add(child);
+            }
+        }
+        return children;
+    }
+
+    @Nonnull
+    private static String text(@Nonnull Element element, @Nonnull String name) {
+        final Element child = child(element, name);
+        return child == null ? "" : child.getTextContent().trim();
+    }
+
+    @Nonnull
+    private static String interpolate(
+            @Nonnull String value, @Nonnull Map<String, String> properties) {
+        String result = value;
+        // properties may refer to other properties
+        for (int round = 0; round < 8 && result.contains("${"); round++) {
+            final Matcher matcher = PROPERTY.matcher(result);
+            final StringBuilder interpolated = new StringBuilder();
+            boolean replaced = false;
+            while (matcher.find()) {
+                final String replacement = properties.get(matcher.group(1));
+                replaced |= replacement != null;
+                matcher.appendReplacement(
+                        interpolated,
+                        Matcher.quoteReplacement(
+                                replacement != null ? replacement : matcher.group()));
+            }
+            matcher.appendTail(interpolated);
+            result = interpolated.toString();
+            if (!replaced) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Changes to the poms are noticed through their content, not their modification time
+    @Nonnull
+    private static String hash(@Nonnull List<Path> poms) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Path pom : poms) {
+                digest.update(pom.toString().getBytes(UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(pom));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException iox) {
+            // never matches, the module is resolved again
+            return "";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void loadCache() {
+        if (cacheLoaded || cacheFile == null) {
+            return;
+        }
+        cacheLoaded = true;
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported cache format");
+            }
+            if (!in.readUTF().equals(localRepository.toString())) {
+                LOGGER.info("Classpath cache {} belongs to another repository", cacheFile);
+                return;
+            }
+            final Map<String, Cached> entries = new HashMap<>();
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String pom = in.readUTF();
+                entries.put(
+                        pom,
+                        new Cached(in.readUTF(), readPaths(in), readPaths(in), readPaths(in)));
+            }
+            entries.forEach(cache::putIfAbsent);
+        } catch (NoSuchFileException e) {
+            LOGGER.info("No classpath cache found at {}, resolving all modules", cacheFile);
+        } catch (IOException iox) {
+            LOGGER.warn("Ignoring classpath cache {}: {}", cacheFile, iox.getMessage());
+        }
+    }
+
+    // Writes the cache file, if one is set and modules were resolved since it was read
+    public synchronized void writeCache() throws IOException {
+        if (cacheFile == null || !cacheChanged) {
+            return;
+        }
+        loadCache();
+        final Path parent = cacheFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporary = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(localRepository.toString());
+            out.writeInt(cache.size());
+            for (Map.Entry<String, Cached> entry : new TreeMap<>(cache).entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().hash());
+                writePaths(out, entry.getValue().poms());
+                writePaths(out, entry.getValue().classpath());
+                writePaths(out, entry.getValue().missing());
+            }
+        }
+        try {
+            Files.move(
+                    temporary,
+                    cacheFile,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        cacheChanged = false;
+    }
+
+    private static void writePaths(@Nonnull DataOutputStream out, @Nonnull List<Path> paths)
+            throws IOException {
+        out.writeInt(paths.size());
+        for (Path path : paths) {
+            out.writeUTF(path.toString());
+        }
+    }
+
+    @Nonnull
+    private static List<Path> readPaths(@Nonnull DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<Path> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(Path.of(in.readUTF()));
+        }
+        return List.copyOf(paths);
+    }
+}
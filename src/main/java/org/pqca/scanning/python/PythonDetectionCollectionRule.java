@@ -23,6 +23,7 @@ import com.ibm.engine.detection.Finding;
 import com.ibm.mapper.model.INode;
 import com.ibm.plugin.rules.PythonInventoryRule;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.util.List;
 import java.util.function.Consumer;
 import org.sonar.plugins.python.api.PythonCheck;
@@ -31,14 +32,36 @@ import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.Tree;
 
 public class PythonDetectionCollectionRule extends PythonInventoryRule {
-    private final Consumer<List<INode>> handler;
+    @Nullable private final Consumer<List<INode>> handler;
+    @Nullable private final Consumer<Finding<PythonCheck, Tree, Symbol, PythonVisitorContext>>
+            collector;
 
     public PythonDetectionCollectionRule(@Nonnull Consumer<List<INode>> findingConsumer) {
-        this.handler = findingConsumer;
+        this(findingConsumer, null);
+    }
+
+    private PythonDetectionCollectionRule(
+            @Nullable Consumer<List<INode>> handler,
+            @Nullable
+                    Consumer<Finding<PythonCheck, Tree, Symbol, PythonVisitorContext>> collector) {
+        this.handler = handler;
+        this.collector = collector;
+    }
+
+    // For worker threads, which must not call into the plugin: findings are only collected,
+    // the scanning thread passes them to the update of a rule of its own
+    @Nonnull
+    static PythonDetectionCollectionRule collecting(
+            @Nonnull Consumer<Finding<PythonCheck, Tree, Symbol, PythonVisitorContext>> collector) {
+        return new PythonDetectionCollectionRule(null, collector);
     }
 
     @Override
     public void update(@Nonnull Finding<PythonCheck, Tree, Symbol, PythonVisitorContext> finding) {
+        if (collector != null) {
+            collector.accept(finding);
+            return;
+        }
         super.update(finding);
         final List<INode> nodes = pythonTranslationProcess.initiate(finding.detectionStore());
         handler.accept(nodes);
@@ -19,12 +19,23 @@
  */
 package org.pqca.scanning.python;
 
+import com.ibm.engine.detection.Finding;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.errors.UncheckedClientDisconnected;
+import org.pqca.indexing.LazyInputFile;
 import org.pqca.indexing.ProjectModule;
+import org.pqca.indexing.SourceDecoder;
 import org.pqca.progress.IProgressDispatcher;
 import org.pqca.progress.ProgressMessage;
 import org.pqca.progress.ProgressMessageType;
@@ -34,10 +45,16 @@ import org.pqca.scanning.ScannerService;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.Tree;
 
 public final class PythonScannerService extends ScannerService {
 
+    private record ScannedFile(
+            long lines,
+            @Nonnull List<Finding<PythonCheck, Tree, Symbol, PythonVisitorContext>> findings) {}
+
     public PythonScannerService(@Nonnull File projectDirectory) {
         this(null, projectDirectory);
     }
@@ -50,47 +67,143 @@ public final class PythonScannerService extends ScannerService {
     @Override
     public @Nonnull ScanResultDTO scan(@Nonnull List<ProjectModule> index)
             throws ClientDisconnected {
-        final PythonCheck visitor = new PythonDetectionCollectionRule(this);
-
         LOGGER.info("Start scanning {} python projects", index.size());
+        return scan(index.iterator(), index.size());
+    }
+
+    @Override
+    public @Nonnull ScanResultDTO scan(@Nonnull Stream<ProjectModule> index)
+            throws ClientDisconnected {
+        LOGGER.info("Start scanning python projects");
+        try (index) {
+            return scan(index.iterator(), -1);
+        } catch (UncheckedClientDisconnected e) {
+            throw e.getCause();
+        }
+    }
+
+    @Nonnull
+    private ScanResultDTO scan(@Nonnull Iterator<ProjectModule> index, int numberOfProjects)
+            throws ClientDisconnected {
+        final PythonDetectionCollectionRule visitor = new PythonDetectionCollectionRule(this);
+        // in parallel, every worker thread has a visitor of its own, which collects the
+        // findings of the file it scans; they are handed to the plugin through the visitor of
+        // this thread
+        final ThreadLocal<List<Finding<PythonCheck, Tree, Symbol, PythonVisitorContext>>>
+                fileFindings = new ThreadLocal<>();
+        final ThreadLocal<PythonCheck> workerVisitors =
+                ThreadLocal.withInitial(
+                        () ->
+                                PythonDetectionCollectionRule.collecting(
+                                        finding -> fileFindings.get().add(finding)));
+        final SourceDecoder sourceDecoder = new SourceDecoder();
 
         long scanTimeStart = System.currentTimeMillis();
         int counter = 1;
-        int numberOfScannedLines = 0;
-        int numberOfScannedFiles = 0;
-        for (ProjectModule project : index) {
-            numberOfScannedFiles += project.inputFileList().size();
-            numberOfScannedLines +=
-                    project.inputFileList().stream().mapToInt(InputFile::lines).sum();
+        long numberOfScannedLines = 0;
+        long numberOfScannedFiles = 0;
+        long numberOfDuplicateFiles = 0;
+        // identical files (e.g. vendored helpers) are scanned once, by the content hash the
+        // indexer computed when fingerprinting files
+        final Map<String, Path> scannedFiles = new HashMap<>();
+        try (OrderedTasks<ScannedFile> tasks =
+                getParallelism() > 1 ? new OrderedTasks<>(getParallelism()) : null) {
+            while (index.hasNext()) {
+                final ProjectModule project = index.next();
+                requireDefaultFileSystem(project);
+                numberOfScannedFiles += project.lazyInputFileList().size();
 
-            final String projectStr =
-                    project.identifier() + " (" + counter + "/" + index.size() + ")";
-            if (this.progressDispatcher != null) {
-                this.progressDispatcher.send(
-                        new ProgressMessage(
-                                ProgressMessageType.LABEL,
-                                "Scanning python project " + projectStr));
+                final String projectStr =
+                        project.identifier() + " " + progressOf(counter, numberOfProjects);
+                if (this.progressDispatcher != null) {
+                    this.progressDispatcher.send(
+                            new ProgressMessage(
+                                    ProgressMessageType.LABEL,
+                                    "Scanning python project " + projectStr));
+                }
+                LOGGER.info("Scanning python project {}", projectStr);
+                for (LazyInputFile file : project.lazyInputFileList()) {
+                    final String fingerprint = file.fingerprint();
+                    if (!fingerprint.isEmpty()) {
+                        final Path scannedFile =
+                                scannedFiles.putIfAbsent(fingerprint, file.path());
+                        if (scannedFile != null) {
+                            addDuplicateFile(scannedFile, file.path());
+                            numberOfDuplicateFiles++;
+                            continue;
+                        }
+                    }
+                    if (tasks == null) {
+                        numberOfScannedLines +=
+                                scanFile(visitor, file, project.identifier(), sourceDecoder);
+                        continue;
+                    }
+                    // findings are added in file order, as by the serial scan
+                    if (tasks.isFull()) {
+                        numberOfScannedLines += addFindings(visitor, tasks.take());
+                    }
+                    tasks.submit(
+                            () -> {
+                                fileFindings.set(new ArrayList<>());
+                                try {
+                                    final long lines =
+                                            scanFile(
+                                                    workerVisitors.get(),
+                                                    file,
+                                                    project.identifier(),
+                                                    sourceDecoder);
+                                    return new ScannedFile(lines, fileFindings.get());
+                                } finally {
+                                    fileFindings.remove();
+                                }
+                            });
+                }
+                counter++;
             }
-            LOGGER.info("Scanning python project {}", projectStr);
-            for (InputFile inputFile : project.inputFileList()) {
-                final PythonScannableFile pythonScannableFile = new PythonScannableFile(inputFile);
-                final FileInput parsedFile = pythonScannableFile.parse();
-                final PythonVisitorContext context =
-                        new PythonVisitorContext.Builder(parsedFile, pythonScannableFile)
-                                .workingDirectory(this.projectDirectory)
-                                .packageName(project.identifier())
-                                .build();
-                visitor.scanFile(context);
+            while (tasks != null && !tasks.isEmpty()) {
+                numberOfScannedLines += addFindings(visitor, tasks.take());
             }
-            counter++;
         }
-        LOGGER.info("Scanned {} python projects", index.size());
+        LOGGER.info(
+                "Scanned {} python projects, skipped {} duplicate files",
+                counter - 1,
+                numberOfDuplicateFiles);
 
         return new ScanResultDTO(
                 scanTimeStart,
                 System.currentTimeMillis(),
                 numberOfScannedLines,
                 numberOfScannedFiles,
+                sourceDecoder.getNumberOfFallbackDecodedFiles(),
+                numberOfDuplicateFiles,
                 this.getBOM().map(CBOM::new).orElse(null));
     }
+
+    // Parses and visits a file, returns its number of lines. Unreadable files are skipped.
+    private long scanFile(
+            @Nonnull PythonCheck visitor,
+            @Nonnull LazyInputFile file,
+            @Nonnull String packageName,
+            @Nonnull SourceDecoder sourceDecoder) {
+        final Optional<InputFile> loaded = file.tryLoad(sourceDecoder);
+        if (loaded.isEmpty()) {
+            return 0;
+        }
+        final InputFile inputFile = loaded.get();
+        final PythonScannableFile pythonScannableFile = new PythonScannableFile(inputFile);
+        final FileInput parsedFile = pythonScannableFile.parse();
+        final PythonVisitorContext context =
+                new PythonVisitorContext.Builder(parsedFile, pythonScannableFile)
+                        .workingDirectory(this.projectDirectory)
+                        .packageName(packageName)
+                        .build();
+        visitor.scanFile(context);
+        return file.lines() >= 0 ? file.lines() : inputFile.lines();
+    }
+
+    private long addFindings(
+            @Nonnull PythonDetectionCollectionRule visitor, @Nonnull ScannedFile scannedFile) {
+        scannedFile.findings().forEach(visitor::update);
+        return scannedFile.lines();
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+
+class GitRepositoryTest {
+    private static final String BASE = "class Base {}\n";
+    private static final String DERIVED = BASE + "class Derived extends Base {}\n";
+
+    @TempDir Path tempDir;
+
+    @Test
+    void indexRevision() throws IOException, ClientDisconnected, NoSuchAlgorithmException {
+        final Path gitDirectory = Files.createDirectories(tempDir.resolve(".git/objects"));
+        // both source files are packed, Derived.java as a delta of Base.java
+        final byte[] base = id("blob", BASE.getBytes(UTF_8));
+        final byte[] derived = id("blob", DERIVED.getBytes(UTF_8));
+        writePack(gitDirectory.resolve("pack"), base, derived);
+        final byte[] pom = writeLoose("blob", "<project/>".getBytes(UTF_8));
+        final byte[] src =
+                writeLoose("tree", tree("100644 Base.java", base, "100644 Derived.java", derived));
+        final byte[] root = writeLoose("tree", tree("100644 pom.xml", pom, "40000 src", src));
+        final String commit =
+                HexFormat.of()
+                        .formatHex(
+                                writeLoose(
+                                        "commit",
+                                        ("tree "
+                                                        + HexFormat.of().formatHex(root)
+                                                        + "\nauthor A <a@b> 1700000000 +0100"
+                                                        + "\ncommitter A <a@b> 1700000000 +0100"
+                                                        + "\n\nInitial\n")
+                                                .getBytes(UTF_8)));
+        Files.writeString(tempDir.resolve(".git/HEAD"), "ref: refs/heads/main\n");
+        Files.writeString(tempDir.resolve(".git/packed-refs"), commit + " refs/heads/main\n");
+
+        final GitRepository repository = GitRepository.open(tempDir);
+        assertThat(repository.resolve("HEAD")).isEqualTo(commit);
+        assertThat(repository.resolve("main")).isEqualTo(commit);
+
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+        final List<ProjectModule> projectModules =
+                javaIndexService.indexRevision(repository, "main");
+        assertThat(projectModules).hasSize(1);
+        final List<LazyInputFile> files = projectModules.getFirst().lazyInputFileList();
+        assertThat(files).hasSize(2);
+        assertThat(files.getLast().path()).isEqualTo(tempDir.resolve("src/Derived.java"));
+        assertThat(files.getLast().size()).isEqualTo(DERIVED.length());
+        assertThat(files.getLast().lastModified()).isEqualTo(1700000000000L);
+        assertThat(files.getFirst().load().contents()).isEqualTo(BASE);
+        assertThat(files.getLast().load().contents()).isEqualTo(DERIVED);
+        // the second time from the cached base
+        assertThat(files.getLast().load().contents()).isEqualTo(DERIVED);
+
+        final String derivedId = HexFormat.of().formatHex(derived);
+        assertThat(new String(repository.read(derivedId).data(), UTF_8)).isEqualTo(DERIVED);
+        repository.close();
+        assertThatThrownBy(() -> repository.read(derivedId)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> files.getLast().load()).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void applyDelta() throws IOException {
+        final byte[] base = "0123456789".getBytes(UTF_8);
+        // sizes 10 and 7, copy 4 bytes from offset 3, insert "abc"
+        final byte[] delta = {10, 7, (byte) 0x91, 3, 4, 3, 'a', 'b', 'c'};
+        assertThat(new String(GitPack.applyDelta(base, delta), UTF_8)).isEqualTo("3456abc");
+    }
+
+    private byte[] writeLoose(String type, byte[] content)
+            throws IOException, NoSuchAlgorithmException {
+        final byte[] id = id(type, content);
+        final String hex = HexFormat.of().formatHex(id);
+        final Path file =
+                tempDir.resolve(".git/objects/" + hex.substring(0, 2) + "/" + hex.substring(2));
+        Files.createDirectories(file.getParent());
+        final byte[] header = (type + " " + content.length + "\0").getBytes(UTF_8);
+        Files.write(file, deflate(concat(header, content)));
+        return id;
+    }
+
+    // A pack holding the base blob and the derived blob as an offset delta of it
+    private static void writePack(Path directory, byte[] baseId, byte[] derivedId)
+            throws IOException, NoSuchAlgorithmException {
+        final byte[] baseContent = BASE.getBytes(UTF_8);
+        final byte[] inserted = "class Derived extends Base {}\n".getBytes(UTF_8);
+        final ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        delta.write(baseContent.length);
+        delta.write(baseContent.length + inserted.length);
+        delta.write(0x90); // copy, one size byte, offset 0
+        delta.write(baseContent.length);
+        delta.write(inserted.length); // insert
+        delta.write(inserted);
+
+        final ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(pack);
+        out.writeBytes("PACK");
+        out.writeInt(2);
+        out.writeInt(2);
+        final int baseOffset = pack.size();
+        out.write(0x30 | baseContent.length); // blob, size < 16
+        out.write(deflate(baseContent));
+        final int derivedOffset = pack.size();
+        out.write(0x80 | 0x60 | (delta.size() & 0x0f)); // offset delta
+        out.write(delta.size() >> 4);
+        out.write(derivedOffset - baseOffset);
+        out.write(deflate(delta.toByteArray()));
+        out.write(MessageDigest.getInstance("SHA-1").digest(pack.toByteArray()));
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("pack-test.pack"), pack.toByteArray());
+
+        final boolean baseFirst =
+                HexFormat.of().formatHex(baseId).compareTo(HexFormat.of().formatHex(derivedId))
+                        < 0;
+        final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        final DataOutputStream idx = new DataOutputStream(index);
+        idx.writeInt(0xff744f63);
+        idx.writeInt(2);
+        for (int i = 0; i < 256; i++) {
+            idx.writeInt(
+                    (i >= (baseId[0] & 0xff) ? 1 : 0) + (i >= (derivedId[0] & 0xff) ? 1 : 0));
+        }
+        idx.write(baseFirst ? baseId : derivedId);
+        idx.write(baseFirst ? derivedId : baseId);
+        idx.writeInt(0); // CRC32 checksums are not verified
+        idx.writeInt(0);
+        idx.writeInt(baseFirst ? baseOffset : derivedOffset);
+        idx.writeInt(baseFirst ? derivedOffset : baseOffset);
+        Files.write(directory.resolve("pack-test.idx"), index.toByteArray());
+    }
+
+    private static byte[] tree(String mode1, byte[] id1, String mode2, byte[] id2) {
+        return concat(
+                (mode1 + "\0").getBytes(UTF_8), id1, (mode2 + "\0").getBytes(UTF_8), id2);
+    }
+
+    private static byte[] id(String type, byte[] content) throws NoSuchAlgorithmException {
+        final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update((type + " " + content.length + "\0").getBytes(UTF_8));
+        return sha1.digest(content);
+    }
+
+    private static byte[] deflate(byte[] content) throws IOException {
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated)) {
+            out.write(content);
+        }
+        return deflated.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
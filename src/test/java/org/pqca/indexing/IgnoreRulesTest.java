@@ -0,0 +1,65 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class IgnoreRulesTest {
+    private static final Path ROOT = Path.of("/project");
+
+    @Test
+    void unanchoredPatternsMatchAtAnyDepth() {
+        final IgnoreRules rules = IgnoreRules.NONE.withRules(ROOT, List.of("*.class", "target/"));
+        assertThat(rules.isIgnored(ROOT.resolve("A.class"), false)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("a/b/A.class"), false)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("a/A.java"), false)).isFalse();
+        assertThat(rules.isIgnored(ROOT.resolve("module/target"), true)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("module/target"), false)).isFalse();
+    }
+
+    @Test
+    void anchoredPatterns() {
+        final IgnoreRules rules =
+                IgnoreRules.NONE.withRules(ROOT, List.of("/build", "docs/*.md", "gen/**/out"));
+        assertThat(rules.isIgnored(ROOT.resolve("build"), true)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("module/build"), true)).isFalse();
+        assertThat(rules.isIgnored(ROOT.resolve("docs/README.md"), false)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("docs/api/README.md"), false)).isFalse();
+        assertThat(rules.isIgnored(ROOT.resolve("gen/out"), true)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("gen/a/b/out"), true)).isTrue();
+    }
+
+    @Test
+    void negationAndNestedFiles() {
+        final IgnoreRules rules =
+                IgnoreRules.NONE
+                        .withRules(ROOT, List.of("# generated", "", "*.py", "!keep.py"))
+                        .withRules(ROOT.resolve("vendor"), List.of("!*.py", "[a-c]?.py"));
+        assertThat(rules.isIgnored(ROOT.resolve("main.py"), false)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("keep.py"), false)).isFalse();
+        assertThat(rules.isIgnored(ROOT.resolve("vendor/main.py"), false)).isFalse();
+        assertThat(rules.isIgnored(ROOT.resolve("vendor/b1.py"), false)).isTrue();
+        assertThat(rules.isIgnored(ROOT.resolve("# generated"), false)).isFalse();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+import org.sonar.api.batch.fs.InputFile;
+
+class IndexSnapshotTest {
+    @Test
+    void roundTrip(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final List<ProjectModule> projectModules =
+                new JavaIndexService(new File("src/test/testdata/java/keycloak")).index(null);
+        final Path snapshot = tempDir.resolve("index.snapshot");
+        IndexSnapshot.write(projectModules, snapshot);
+        assertThat(IndexSnapshot.read(snapshot)).containsExactlyElementsOf(projectModules);
+    }
+
+    @Test
+    void filesNotOnDisk(@TempDir Path tempDir) throws IOException {
+        final Path module = tempDir.resolve("module");
+        final LazyInputFile file =
+                new LazyInputFile(
+                        module,
+                        module.resolve("src/Blob.java"),
+                        13,
+                        1,
+                        0,
+                        UTF_8,
+                        "java",
+                        InputFile.Status.CHANGED,
+                        "hash",
+                        () -> ByteBuffer.wrap("class Blob {}".getBytes(UTF_8)));
+        final Path snapshot = tempDir.resolve("index.snapshot");
+        IndexSnapshot.write(
+                List.of(
+                        new ProjectModule(
+                                "module",
+                                module,
+                                List.of(file),
+                                List.of(tempDir.resolve("Gone.java")),
+                                new BuildArtifacts(
+                                        List.of(module.resolve("target/classes")),
+                                        List.of(tempDir.resolve("lib.jar"))))),
+                snapshot);
+
+        final ProjectModule projectModule = IndexSnapshot.read(snapshot).getFirst();
+        assertThat(projectModule.deletedFiles()).containsExactly(tempDir.resolve("Gone.java"));
+        assertThat(projectModule.buildArtifacts().classDirectories())
+                .containsExactly(module.resolve("target/classes"));
+        assertThat(projectModule.buildArtifacts().libraries())
+                .containsExactly(tempDir.resolve("lib.jar"));
+        final LazyInputFile loaded = projectModule.lazyInputFileList().getFirst();
+        assertThat(loaded.path()).isEqualTo(file.path());
+        assertThat(loaded.contentHash()).isEqualTo("hash");
+        assertThat(loaded.lines()).isEqualTo(1);
+        final InputFile inputFile = loaded.load();
+        assertThat(inputFile.contents()).isEqualTo("class Blob {}");
+        assertThat(inputFile.status()).isEqualTo(InputFile.Status.CHANGED);
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir Path tempDir) throws IOException {
+        final Path file = Files.writeString(tempDir.resolve("index.snapshot"), "not a snapshot");
+        final IOException e = assertThrows(IOException.class, () -> IndexSnapshot.read(file));
+        assertThat(e.getMessage()).contains("not an index snapshot");
+    }
+
+    @Test
+    void failedWrite(@TempDir Path tempDir) throws IOException {
+        // a non-empty directory cannot be replaced by the snapshot
+        final Path snapshot = Files.createDirectories(tempDir.resolve("index.snapshot"));
+        Files.writeString(snapshot.resolve("other"), "");
+        assertThrows(IOException.class, () -> IndexSnapshot.write(List.of(), snapshot));
+        assertThat(Files.exists(tempDir.resolve("index.snapshot.tmp"))).isFalse();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+import org.sonar.api.batch.fs.InputFile;
+
+class IndexWatcherTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void changeSets(@TempDir Path tempDir)
+            throws ClientDisconnected, IOException, InterruptedException {
+        final Path sources = Files.createDirectories(tempDir.resolve("a/src"));
+        Files.writeString(tempDir.resolve("a/pom.xml"), "<project/>");
+        Files.writeString(sources.resolve("A.java"), "class A {}");
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+        javaIndexService.setCountLines(true);
+
+        try (IndexWatcher watcher = javaIndexService.watch()) {
+            watcher.setQuietPeriod(Duration.ofMillis(300));
+            assertThat(watcher.getProjectModules()).hasSize(1);
+
+            Files.writeString(sources.resolve("B.java"), "class B {}");
+            List<ProjectModule> changes = watcher.awaitChanges(TIMEOUT);
+            assertThat(changes).hasSize(1);
+            assertThat(changes.getFirst().identifier()).isEqualTo("a");
+            LazyInputFile file = changes.getFirst().lazyInputFileList().getFirst();
+            assertThat(file.path()).isEqualTo(sources.resolve("B.java"));
+            assertThat(file.status()).isEqualTo(InputFile.Status.ADDED);
+            assertThat(file.lines()).isEqualTo(1);
+            assertThat(watcher.getProjectModules().getFirst().lazyInputFileList()).hasSize(2);
+
+            Files.writeString(sources.resolve("A.java"), "class A {\n}\n");
+            changes = watcher.awaitChanges(TIMEOUT);
+            file = changes.getFirst().lazyInputFileList().getFirst();
+            assertThat(file.path()).isEqualTo(sources.resolve("A.java"));
+            assertThat(file.status()).isEqualTo(InputFile.Status.CHANGED);
+            assertThat(file.lines()).isEqualTo(3);
+
+            Files.delete(sources.resolve("B.java"));
+            changes = watcher.awaitChanges(TIMEOUT);
+            assertThat(changes.getFirst().lazyInputFileList()).isEmpty();
+            assertThat(changes.getFirst().deletedFiles())
+                    .containsExactly(sources.resolve("B.java"));
+
+            // a new module is found by re-indexing the tree
+            final Path module = Files.createDirectories(tempDir.resolve("b/src"));
+            Files.writeString(module.resolve("C.java"), "class C {}");
+            Files.writeString(tempDir.resolve("b/pom.xml"), "<project/>");
+            changes = watcher.awaitChanges(TIMEOUT);
+            assertThat(changes).hasSize(1);
+            assertThat(changes.getFirst().identifier()).isEqualTo("b");
+            assertThat(changes.getFirst().lazyInputFileList().getFirst().status())
+                    .isEqualTo(InputFile.Status.ADDED);
+            assertThat(watcher.getProjectModules().stream().map(ProjectModule::identifier))
+                    .containsExactly("a", "b");
+
+            assertThat(watcher.awaitChanges(Duration.ofMillis(100))).isEmpty();
+        }
+    }
+
+    @Test
+    void filesOutsideModules(@TempDir Path tempDir)
+            throws ClientDisconnected, IOException, InterruptedException {
+        Files.createDirectories(tempDir.resolve("a/src"));
+        Files.writeString(tempDir.resolve("a/pom.xml"), "<project/>");
+        Files.writeString(tempDir.resolve("a/src/A.java"), "class A {}");
+        Files.createDirectories(tempDir.resolve("scripts"));
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+
+        try (IndexWatcher watcher = javaIndexService.watch()) {
+            watcher.setQuietPeriod(Duration.ofMillis(300));
+            Files.writeString(tempDir.resolve("scripts/Tool.java"), "class Tool {}");
+            Files.writeString(tempDir.resolve("a/README.md"), "# a");
+            assertThat(watcher.awaitChanges(TIMEOUT)).isEmpty();
+            assertThat(watcher.getProjectModules().getFirst().lazyInputFileList()).hasSize(1);
+        }
+    }
+}
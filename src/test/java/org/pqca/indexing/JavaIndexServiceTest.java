@@ -22,9 +22,22 @@ package org.pqca.indexing;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaBuildType;
 import org.pqca.indexing.java.JavaIndexService;
 import org.sonar.api.batch.fs.InputFile;
 
@@ -37,6 +50,20 @@ class JavaIndexServiceTest {
         assertThat(projectModules).hasSize(0);
     }
 
+    @Test
+    void includeAndExclude() throws ClientDisconnected {
+        final JavaIndexService javaIndexService =
+                new JavaIndexService(new File("src/test/testdata/java/keycloak"));
+        javaIndexService.setIncludePatterns(List.of("Provider\\.java$", "Factory\\.java$"));
+        javaIndexService.setExcludePatterns(List.of("crypto/hash/"));
+        final List<ProjectModule> projectModules = javaIndexService.index(null);
+        assertThat(projectModules).hasSize(2);
+        assertThat(projectModules.getFirst().identifier()).isEqualTo("crypto/default");
+        assertThat(projectModules.getFirst().inputFileList()).hasSize(10);
+        assertThat(projectModules.getLast().identifier()).isEqualTo("services");
+        assertThat(projectModules.getLast().inputFileList()).hasSize(3);
+    }
+
     @Test
     void test() throws ClientDisconnected {
         final JavaIndexService javaIndexService =
@@ -52,6 +79,39 @@ class JavaIndexServiceTest {
         }
     }
 
+    @Test
+    void lineCounts() throws ClientDisconnected {
+        final JavaIndexService javaIndexService =
+                new JavaIndexService(new File("src/test/testdata/java/keycloak"));
+        javaIndexService.setCountLines(true);
+        for (ProjectModule projectModule : javaIndexService.index(null)) {
+            long lines = 0;
+            for (LazyInputFile file : projectModule.lazyInputFileList()) {
+                assertThat(file.lines()).isEqualTo(file.load().lines());
+                lines += file.lines();
+            }
+            assertThat(projectModule.numberOfLines()).isEqualTo(lines);
+        }
+    }
+
+    @Test
+    void lineCountsWhileLoading() throws ClientDisconnected {
+        final JavaIndexService javaIndexService =
+                new JavaIndexService(new File("src/test/testdata/java/keycloak"));
+        for (ProjectModule projectModule : javaIndexService.index(null)) {
+            final LongAdder lines = new LongAdder();
+            final List<InputFile> inputFiles =
+                    projectModule.inputFileList(new SourceDecoder(), lines::add);
+            // every file is counted once, however often it is loaded
+            for (int i = 0; i < 2; i++) {
+                for (InputFile inputFile : inputFiles) {
+                    assertThat(inputFile.lines()).isPositive();
+                }
+            }
+            assertThat(lines.sum()).isEqualTo(projectModule.numberOfLines());
+        }
+    }
+
     @Test
     void plain() throws ClientDisconnected {
         final JavaIndexService javaIndexService =
@@ -78,4 +138,261 @@ class JavaIndexServiceTest {
         assertThat(inputFiles2).hasSize(1);
         assertThat(inputFiles2.getFirst().filename()).isEqualTo("JavaCrypto.java");
     }
+
+    @Test
+    void deterministicOrder() throws ClientDisconnected {
+        final List<String> expected = indexedFiles(1);
+        assertThat(expected).hasSize(31);
+        for (int i = 0; i < 5; i++) {
+            assertThat(indexedFiles(8)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void stream() throws ClientDisconnected {
+        final File keycloak = new File("src/test/testdata/java/keycloak");
+        final List<ProjectModule> expected = new JavaIndexService(keycloak).index(null);
+        try (Stream<ProjectModule> stream = new JavaIndexService(keycloak).indexAsStream(null)) {
+            assertThat(stream.toList()).containsExactlyElementsOf(expected);
+        }
+        try (Stream<ProjectModule> stream = new JavaIndexService(keycloak).indexAsStream(null)) {
+            assertThat(stream.findFirst()).hasValue(expected.getFirst());
+        }
+    }
+
+    @Test
+    void manifest(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final Path project = tempDir.resolve("project");
+        final Path sources = Files.createDirectories(project.resolve("module/src"));
+        Files.writeString(project.resolve("module/pom.xml"), "<project/>");
+        Files.writeString(sources.resolve("Kept.java"), "class Kept {}");
+        Files.writeString(sources.resolve("Touched.java"), "class Touched {}");
+        Files.writeString(sources.resolve("Changed.java"), "class Changed {}");
+        Files.writeString(sources.resolve("Deleted.java"), "class Deleted {}");
+        final Path manifestFile = tempDir.resolve("java.manifest");
+
+        Map<String, InputFile.Status> statuses = indexWithManifest(project, manifestFile);
+        assertThat(statuses).hasSize(4).containsValue(InputFile.Status.ADDED);
+        assertThat(statuses).doesNotContainValue(InputFile.Status.SAME);
+
+        final FileTime later = FileTime.fromMillis(System.currentTimeMillis() + 60_000);
+        Files.setLastModifiedTime(sources.resolve("Touched.java"), later);
+        Files.writeString(sources.resolve("Changed.java"), "class Changed { int i; }");
+        Files.delete(sources.resolve("Deleted.java"));
+        Files.writeString(sources.resolve("Added.java"), "class Added {}");
+
+        final JavaIndexService javaIndexService = new JavaIndexService(project.toFile());
+        javaIndexService.setManifestFile(manifestFile);
+        final List<ProjectModule> projectModules = javaIndexService.index(null);
+        assertThat(projectModules).hasSize(1);
+        assertThat(projectModules.getFirst().deletedFiles())
+                .containsExactly(sources.resolve("Deleted.java"));
+        statuses = statuses(projectModules);
+        assertThat(statuses)
+                .containsEntry("Kept.java", InputFile.Status.SAME)
+                .containsEntry("Touched.java", InputFile.Status.SAME)
+                .containsEntry("Changed.java", InputFile.Status.CHANGED)
+                .containsEntry("Added.java", InputFile.Status.ADDED)
+                .hasSize(4);
+
+        statuses = indexWithManifest(project, manifestFile);
+        assertThat(statuses).hasSize(4).doesNotContainValue(InputFile.Status.CHANGED);
+        assertThat(statuses).doesNotContainValue(InputFile.Status.ADDED);
+    }
+
+    @Test
+    void ignoreFiles(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final Path sources = Files.createDirectories(tempDir.resolve("module/src"));
+        Files.writeString(tempDir.resolve("module/pom.xml"), "<project/>");
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n*Test.java\n");
+        Files.writeString(sources.resolve(".cbomignore"), "!KeptTest.java\n");
+        Files.writeString(sources.resolve("Main.java"), "class Main {}");
+        Files.writeString(sources.resolve("MainTest.java"), "class MainTest {}");
+        Files.writeString(sources.resolve("KeptTest.java"), "class KeptTest {}");
+        Files.createDirectories(sources.resolve("generated"));
+        Files.writeString(sources.resolve("generated/Stub.java"), "class Stub {}");
+
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+        assertThat(javaIndexService.index(null).getFirst().inputFileList()).hasSize(4);
+        javaIndexService.setRespectIgnoreFiles(true);
+        final List<ProjectModule> projectModules = javaIndexService.index(null);
+        assertThat(projectModules).hasSize(1);
+        assertThat(fileNames(projectModules)).containsExactly("KeptTest.java", "Main.java");
+    }
+
+    @Test
+    void moduleDetectionOnDisk(@TempDir Path tempDir) throws IOException {
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+        final File module = Files.createDirectories(tempDir.resolve("module/src")).toFile();
+        assertThat(javaIndexService.isModule(module.getParentFile())).isFalse();
+        Files.createDirectories(tempDir.resolve("module/pom.xml"));
+        assertThat(javaIndexService.isModule(module.getParentFile())).isFalse();
+        Files.writeString(tempDir.resolve("module/build.gradle.kts"), "plugins {}");
+        assertThat(javaIndexService.isModule(module.getParentFile())).isTrue();
+        assertThat(javaIndexService.getMainBuildTypeFromModuleDirectory(module.getParentFile()))
+                .isEqualTo(JavaBuildType.GRADLE);
+        assertThat(javaIndexService.isModule(tempDir.resolve("missing").toFile())).isFalse();
+    }
+
+    @Test
+    void symbolicLinks(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final Path project = tempDir.resolve("project");
+        final Path sources = Files.createDirectories(project.resolve("module/src"));
+        Files.writeString(project.resolve("module/pom.xml"), "<project/>");
+        Files.writeString(sources.resolve("Main.java"), "class Main {}");
+        Files.createLink(sources.resolve("HardLink.java"), sources.resolve("Main.java"));
+        Files.createSymbolicLink(sources.resolve("loop"), project.resolve("module"));
+        final Path shared = Files.createDirectories(tempDir.resolve("shared"));
+        Files.writeString(shared.resolve("Shared.java"), "class Shared {}");
+        Files.createSymbolicLink(shared.resolve("self"), shared);
+        Files.createSymbolicLink(shared.resolve("back"), project);
+        Files.createSymbolicLink(sources.resolve("shared"), shared);
+        Files.createSymbolicLink(sources.resolve("Alias.java"), shared.resolve("Shared.java"));
+
+        final JavaIndexService javaIndexService = new JavaIndexService(project.toFile());
+        assertThat(fileNames(javaIndexService.index(null)))
+                .containsExactly("Alias.java", "HardLink.java");
+        javaIndexService.setSymbolicLinkPolicy(SymbolicLinkPolicy.SKIP);
+        assertThat(fileNames(javaIndexService.index(null))).containsExactly("HardLink.java");
+    }
+
+    @Test
+    void buildArtifacts(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final Path maven = tempDir.resolve("maven");
+        Files.createDirectories(maven.resolve("src/main/java"));
+        Files.writeString(maven.resolve("pom.xml"), "<project/>");
+        Files.writeString(maven.resolve("src/main/java/Main.java"), "class Main {}");
+        Files.createDirectories(maven.resolve("target/classes"));
+        Files.writeString(maven.resolve("target/classes/Main.java"), "class Main {}");
+        Files.createDirectories(maven.resolve("target/dependency"));
+        Files.writeString(maven.resolve("target/dependency/lib.jar"), "");
+        Files.writeString(maven.resolve("target/dependency/lib-sources.jar"), "");
+        // checked in by unbuilt projects as well
+        Files.createDirectories(maven.resolve(".mvn/wrapper"));
+        Files.writeString(maven.resolve(".mvn/wrapper/maven-wrapper.jar"), "");
+        Files.createDirectories(maven.resolve("tools"));
+        Files.writeString(maven.resolve("tools/tool.jar"), "");
+        final Path gradle = maven.resolve("gradle");
+        Files.createDirectories(gradle.resolve("src"));
+        Files.writeString(gradle.resolve("build.gradle"), "plugins {}");
+        Files.writeString(gradle.resolve("src/Tool.java"), "class Tool {}");
+        Files.createDirectories(gradle.resolve("build/classes/java/main"));
+        Files.createDirectories(gradle.resolve("build/classes/java/test"));
+        Files.createDirectories(gradle.resolve("gradle/wrapper"));
+        Files.writeString(gradle.resolve("gradle/wrapper/gradle-wrapper.jar"), "");
+        Files.createDirectories(gradle.resolve("libs"));
+        Files.writeString(gradle.resolve("libs/dependency.jar"), "");
+        Files.createDirectories(gradle.resolve("build/libs"));
+        Files.writeString(gradle.resolve("build/libs/gradle.jar"), "");
+
+        final List<ProjectModule> projectModules =
+                new JavaIndexService(tempDir.toFile()).index(null);
+        assertThat(projectModules).hasSize(2);
+        final ProjectModule gradleModule = projectModules.getFirst();
+        assertThat(gradleModule.identifier()).isEqualTo("maven/gradle");
+        assertThat(gradleModule.buildArtifacts().classDirectories())
+                .containsExactly(gradle.resolve("build/classes/java/main"));
+        assertThat(gradleModule.buildArtifacts().libraries())
+                .containsExactlyInAnyOrder(
+                        gradle.resolve("build/libs/gradle.jar"),
+                        gradle.resolve("libs/dependency.jar"));
+        final ProjectModule mavenModule = projectModules.getLast();
+        assertThat(mavenModule.buildArtifacts().classDirectories())
+                .containsExactly(maven.resolve("target/classes"));
+        assertThat(mavenModule.buildArtifacts().libraries())
+                .containsExactly(maven.resolve("target/dependency/lib.jar"));
+        // class directories are not searched for sources
+        assertThat(fileNames(List.of(mavenModule))).containsExactly("Main.java");
+    }
+
+    @Test
+    void zipFileSystem(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        try (FileSystem fileSystem =
+                FileSystems.newFileSystem(
+                        tempDir.resolve("project.zip"), Map.of("create", "true"))) {
+            final Path project = fileSystem.getPath("/project");
+            Files.createDirectories(project.resolve("module/src/main"));
+            Files.writeString(project.resolve("module/pom.xml"), "<project/>");
+            Files.writeString(project.resolve("module/src/main/Main.java"), "class Main {\n}\n");
+            final JavaIndexService javaIndexService = new JavaIndexService(project);
+            javaIndexService.setCountLines(true);
+            assertThat(javaIndexService.isModule(project.resolve("module"))).isTrue();
+
+            final List<ProjectModule> projectModules = javaIndexService.index(null);
+            assertThat(projectModules).hasSize(1);
+            assertThat(projectModules.getFirst().identifier()).isEqualTo("module");
+            assertThat(javaIndexService.getMainBuildType()).contains(JavaBuildType.MAVEN);
+            final LazyInputFile file = projectModules.getFirst().lazyInputFileList().getFirst();
+            assertThat(file.lines()).isEqualTo(3);
+            assertThat(file.load().contents()).isEqualTo("class Main {\n}\n");
+        }
+    }
+
+    @Test
+    void lazyInputFiles(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        Files.createDirectories(tempDir.resolve("module/src"));
+        Files.writeString(tempDir.resolve("module/pom.xml"), "<project/>");
+        Files.writeString(tempDir.resolve("module/src/A.java"), "class A {}");
+        Files.writeString(tempDir.resolve("module/src/B.java"), "class B {}");
+        final ProjectModule projectModule = new JavaIndexService(tempDir).index(null).getFirst();
+        final List<InputFile> inputFiles = projectModule.inputFileList();
+        final InputFile first = inputFiles.getFirst();
+        assertThat(inputFiles.getFirst()).isSameAs(first);
+
+        // files that vanished after indexing appear empty
+        Files.delete(tempDir.resolve("module/src/B.java"));
+        assertThat(fileNames(List.of(projectModule))).containsExactly("A.java", "B.java");
+        assertThat(projectModule.inputFileList().getLast().contents()).isEmpty();
+
+        // modules of files that were read before
+        final ProjectModule readModule =
+                new ProjectModule("module", tempDir.resolve("module"), List.of(first));
+        final InputFile readFile = readModule.inputFileList().getFirst();
+        assertThat(readFile.filename()).isEqualTo("A.java");
+        assertThat(readFile.contents()).isEqualTo("class A {}");
+    }
+
+    private static List<String> fileNames(List<ProjectModule> projectModules) {
+        final List<String> fileNames = new ArrayList<>();
+        for (ProjectModule projectModule : projectModules) {
+            for (InputFile inputFile : projectModule.inputFileList()) {
+                fileNames.add(inputFile.filename());
+            }
+        }
+        return fileNames;
+    }
+
+    private static Map<String, InputFile.Status> indexWithManifest(
+            Path project, Path manifestFile) throws ClientDisconnected {
+        final JavaIndexService javaIndexService = new JavaIndexService(project.toFile());
+        javaIndexService.setManifestFile(manifestFile);
+        final List<ProjectModule> projectModules = javaIndexService.index(null);
+        for (ProjectModule projectModule : projectModules) {
+            assertThat(projectModule.deletedFiles()).isEmpty();
+        }
+        return statuses(projectModules);
+    }
+
+    private static Map<String, InputFile.Status> statuses(List<ProjectModule> projectModules) {
+        final Map<String, InputFile.Status> statuses = new HashMap<>();
+        for (ProjectModule projectModule : projectModules) {
+            for (InputFile inputFile : projectModule.inputFileList()) {
+                statuses.put(inputFile.filename(), inputFile.status());
+            }
+        }
+        return statuses;
+    }
+
+    private static List<String> indexedFiles(int parallelism) throws ClientDisconnected {
+        final JavaIndexService javaIndexService =
+                new JavaIndexService(new File("src/test/testdata/java/keycloak"));
+        javaIndexService.setParallelism(parallelism);
+        final List<String> files = new ArrayList<>();
+        for (ProjectModule projectModule : javaIndexService.index(null)) {
+            for (InputFile inputFile : projectModule.inputFileList()) {
+                files.add(projectModule.identifier() + ":" + inputFile.filename());
+            }
+        }
+        return files;
+    }
 }
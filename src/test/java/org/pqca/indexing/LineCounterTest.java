@@ -0,0 +1,75 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.junit.jupiter.api.Test;
+
+class LineCounterTest {
+
+    @Test
+    void lineBreaks() {
+        assertThat(count("", UTF_8)).isEqualTo(1);
+        assertThat(count("a", UTF_8)).isEqualTo(1);
+        assertThat(count("a\n", UTF_8)).isEqualTo(2);
+        assertThat(count("a\r\nb\rc\n\n", UTF_8)).isEqualTo(5);
+        assertThat(count("\r\r\n\n\r", UTF_8)).isEqualTo(5);
+    }
+
+    @Test
+    void agreesWithScalarCountAcrossWords() {
+        // line breaks at every offset within and across the eight byte words
+        final String[] breaks = {"\n", "\r\n", "\r", "\u00e9"};
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("x".repeat(i % 11)).append(breaks[i % breaks.length]);
+            final String content = text.toString();
+            assertThat(count(content, UTF_8)).isEqualTo(LineCounter.countLines(content));
+        }
+        assertThat(LineCounter.countLines(text)).isEqualTo(151);
+    }
+
+    @Test
+    void bufferPosition() {
+        final ByteBuffer buffer = ByteBuffer.wrap("skipped\n\na\r\nb\nc".getBytes(UTF_8));
+        buffer.position(8);
+        assertThat(LineCounter.countLines(buffer)).isEqualTo(4);
+        assertThat(buffer.position()).isEqualTo(8);
+    }
+
+    @Test
+    void utf16() {
+        // U+0A0D contains both line break bytes but is no line break
+        final String content = "a\u0a0d\r\nb\n";
+        assertThat(count(content, UTF_16LE)).isEqualTo(3);
+        assertThat(count(content, UTF_16BE)).isEqualTo(3);
+        assertThat(count("\ufeff" + content, UTF_16BE)).isEqualTo(3);
+    }
+
+    private static long count(String content, Charset charset) {
+        return LineCounter.countLines(ByteBuffer.wrap(content.getBytes(charset)));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ModulePipeTest {
+    @Test
+    void backpressure() throws InterruptedException {
+        final ModulePipe pipe = new ModulePipe();
+        final AtomicInteger offered = new AtomicInteger();
+        final AtomicReference<RuntimeException> stopped = new AtomicReference<>();
+        final Thread indexer =
+                Thread.ofPlatform()
+                        .start(
+                                () -> {
+                                    try {
+                                        for (int i = 0; i < 100; i++) {
+                                            pipe.accept(module(i));
+                                            offered.incrementAndGet();
+                                        }
+                                        pipe.complete();
+                                    } catch (CancellationException e) {
+                                        stopped.set(e);
+                                    }
+                                });
+        assertThat(pipe.next().identifier()).isEqualTo("0");
+        Thread.sleep(300);
+        // the indexer waits for the consumer instead of queueing every module
+        assertThat(offered.get()).isLessThanOrEqualTo(ModulePipe.CAPACITY + 1);
+
+        pipe.close();
+        indexer.join(5000);
+        assertThat(indexer.isAlive()).isFalse();
+        assertThat(stopped.get()).isNotNull();
+    }
+
+    private static ProjectModule module(int i) {
+        return new ProjectModule(
+                String.valueOf(i), Path.of(String.valueOf(i)), List.of(), List.of());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+import org.pqca.indexing.python.PythonIndexService;
+
+class MultiLanguageIndexServiceTest {
+    @Test
+    void sameModulesAsSeparateWalks() throws ClientDisconnected {
+        final File keycloak = new File("src/test/testdata/java/keycloak");
+        final MultiLanguageIndexService indexService =
+                new MultiLanguageIndexService(
+                        List.of(new JavaIndexService(keycloak), new PythonIndexService(keycloak)));
+        final Map<String, List<ProjectModule>> projectModules = indexService.index();
+        assertThat(projectModules.keySet()).containsExactly("java", "python");
+        assertThat(projectModules.get("java"))
+                .containsExactlyElementsOf(new JavaIndexService(keycloak).index(null));
+        assertThat(projectModules.get("python"))
+                .containsExactlyElementsOf(new PythonIndexService(keycloak).index(null));
+    }
+
+    @Test
+    void mixedProject(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        Files.createDirectories(tempDir.resolve("service/src/test"));
+        Files.writeString(tempDir.resolve("service/pom.xml"), "<project/>");
+        Files.writeString(tempDir.resolve("service/src/Main.java"), "class Main {}");
+        Files.writeString(tempDir.resolve("service/src/test/MainTest.java"), "class T {}");
+        Files.createDirectories(tempDir.resolve("tool/tests"));
+        Files.writeString(tempDir.resolve("tool/pyproject.toml"), "[project]");
+        Files.writeString(tempDir.resolve("tool/main.py"), "import os");
+        Files.writeString(tempDir.resolve("tool/tests/test_main.py"), "import main");
+        Files.createDirectories(tempDir.resolve("tool/.venv/lib"));
+        Files.writeString(tempDir.resolve("tool/.venv/pyvenv.cfg"), "home = /usr/bin");
+        Files.writeString(tempDir.resolve("tool/.venv/lib/six.py"), "");
+
+        final JavaIndexService javaIndexService = new JavaIndexService(tempDir.toFile());
+        final PythonIndexService pythonIndexService = new PythonIndexService(tempDir.toFile());
+        final Map<String, List<ProjectModule>> projectModules =
+                new MultiLanguageIndexService(List.of(javaIndexService, pythonIndexService))
+                        .index();
+        final List<ProjectModule> javaModules = projectModules.get("java");
+        assertThat(javaModules).hasSize(1);
+        assertThat(javaModules.getFirst().identifier()).isEqualTo("service");
+        assertThat(javaModules.getFirst().inputFileList()).hasSize(1);
+        final List<ProjectModule> pythonModules = projectModules.get("python");
+        assertThat(pythonModules).hasSize(1);
+        assertThat(pythonModules.getFirst().identifier()).isEqualTo("tool");
+        assertThat(pythonModules.getFirst().inputFileList()).hasSize(1);
+        assertThat(pythonIndexService.getSkippedDirectories())
+                .containsExactly(tempDir.resolve("tool/.venv"));
+    }
+}
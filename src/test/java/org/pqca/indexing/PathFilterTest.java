@@ -0,0 +1,65 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PathFilterTest {
+    @Test
+    void combinedPatterns() {
+        final PathFilter filter =
+                new PathFilter(List.of("src/test/", "/package-info.java$", "(x)\\1"), List.of());
+        assertThat(filter.isExcluded("module/src/test/Foo.java")).isTrue();
+        assertThat(filter.isExcluded("module/src/main/package-info.java")).isTrue();
+        assertThat(filter.isExcluded("module/src/main/xx/Foo.java")).isTrue();
+        assertThat(filter.isExcluded("module/src/main/x/Foo.java")).isFalse();
+        assertThat(filter.isIncluded("module/src/main/x/Foo.java")).isTrue();
+    }
+
+    @Test
+    void includePatterns() {
+        final PathFilter filter = new PathFilter(List.of("Test"), List.of("^api/", "^core/"));
+        assertThat(filter.acceptsFile("api/Foo.java")).isTrue();
+        assertThat(filter.acceptsFile("core/Bar.java")).isTrue();
+        assertThat(filter.acceptsFile("core/BarTest.java")).isFalse();
+        assertThat(filter.acceptsFile("tools/Baz.java")).isFalse();
+    }
+
+    @Test
+    void subtreePruning() {
+        final PathFilter filter = new PathFilter(List.of("src/test/", "/generated$"), List.of());
+        assertThat(filter.excludesSubtree("module/src/test", "/")).isTrue();
+        assertThat(filter.excludesSubtree("module/src/test/java", "/")).isTrue();
+        assertThat(filter.excludesSubtree("module/src/main", "/")).isFalse();
+        // only the directory itself matches, files below it do not
+        assertThat(filter.excludesSubtree("module/generated", "/")).isFalse();
+        assertThat(new PathFilter(List.of("src/.*"), List.of()).excludesSubtree("src", "/"))
+                .isTrue();
+        assertThat(new PathFilter(List.of("^out\\.d/"), List.of()).excludesSubtree("out.d", "/"))
+                .isTrue();
+        // matches "foo/" but not every file below it
+        final PathFilter lookahead = new PathFilter(List.of("foo/(?!bar)"), List.of());
+        assertThat(lookahead.excludesSubtree("foo", "/")).isFalse();
+        assertThat(lookahead.acceptsFile("foo/bar/Foo.java")).isTrue();
+    }
+}
@@ -22,8 +22,12 @@ package org.pqca.indexing;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.pqca.errors.ClientDisconnected;
 import org.pqca.indexing.python.PythonIndexService;
 
@@ -44,4 +48,28 @@ class PythonIndexServiceTest {
         final ProjectModule projectModule = projectModules.getFirst();
         assertThat(projectModule.inputFileList()).hasSize(1);
     }
+
+    @Test
+    void dependencyDirectories(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        Files.writeString(tempDir.resolve("pyproject.toml"), "[project]");
+        Files.writeString(tempDir.resolve("main.py"), "import os");
+        final Path env = Files.createDirectories(tempDir.resolve("env/lib/site-packages/pkg"));
+        Files.writeString(tempDir.resolve("env/pyvenv.cfg"), "home = /usr/bin");
+        Files.writeString(env.resolve("__init__.py"), "");
+        Files.createDirectories(tempDir.resolve("pkg/__pycache__"));
+        Files.writeString(tempDir.resolve("pkg/util.py"), "");
+        Files.writeString(tempDir.resolve("pkg/__pycache__/util.py"), "");
+
+        final PythonIndexService pythonIndexService = new PythonIndexService(tempDir.toFile());
+        List<ProjectModule> projectModules = pythonIndexService.index(null);
+        assertThat(projectModules).hasSize(1);
+        assertThat(projectModules.getFirst().inputFileList()).hasSize(2);
+        assertThat(pythonIndexService.getSkippedDirectories())
+                .containsExactly(tempDir.resolve("env"), tempDir.resolve("pkg/__pycache__"));
+
+        pythonIndexService.setSkipDependencyDirectories(false);
+        projectModules = pythonIndexService.index(null);
+        assertThat(projectModules.getFirst().inputFileList()).hasSize(4);
+        assertThat(pythonIndexService.getSkippedDirectories()).isEmpty();
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ShardPlannerTest {
+    @Test
+    void largestFirst() {
+        final List<ProjectModule> projectModules =
+                List.of(module("a", 10), module("b", 70), module("c", 20), module("d", 40));
+        final List<ShardPlanner.Shard> shards = new ShardPlanner().plan(projectModules, 2);
+        assertThat(shards).hasSize(2);
+        assertThat(identifiers(shards.get(0))).containsExactly("b");
+        assertThat(shards.get(0).cost()).isEqualTo(70);
+        assertThat(identifiers(shards.get(1))).containsExactly("a", "c", "d");
+        assertThat(shards.get(1).cost()).isEqualTo(70);
+    }
+
+    @Test
+    void fewerModulesThanShards() {
+        final List<ShardPlanner.Shard> shards =
+                new ShardPlanner().plan(List.of(module("a", 10, 10)), 4);
+        assertThat(shards).hasSize(1);
+        assertThat(shards.getFirst().projectModules().getFirst().lazyInputFileList()).hasSize(2);
+    }
+
+    @Test
+    void splitModules() {
+        final ProjectModule large =
+                new ProjectModule(
+                        "large",
+                        Path.of("large"),
+                        module("large", 30, 30, 30, 30, 30, 30).lazyInputFileList(),
+                        List.of(Path.of("large/deleted.py")));
+        final ShardPlanner planner = new ShardPlanner();
+        planner.setSplitModules(true);
+        final List<ShardPlanner.Shard> shards =
+                planner.plan(List.of(module("small", 20), large), 2);
+        assertThat(shards).hasSize(2);
+        assertThat(shards.get(0).cost()).isEqualTo(110);
+        assertThat(shards.get(1).cost()).isEqualTo(90);
+
+        final List<LazyInputFile> files = new ArrayList<>();
+        int withDeletedFiles = 0;
+        for (ShardPlanner.Shard shard : shards) {
+            for (ProjectModule projectModule : shard.projectModules()) {
+                if (projectModule.identifier().equals("large")) {
+                    files.addAll(projectModule.lazyInputFileList());
+                    withDeletedFiles += projectModule.deletedFiles().size();
+                }
+            }
+        }
+        assertThat(files).containsExactlyInAnyOrderElementsOf(large.lazyInputFileList());
+        assertThat(withDeletedFiles).isEqualTo(1);
+    }
+
+    private static List<String> identifiers(ShardPlanner.Shard shard) {
+        return shard.projectModules().stream().map(ProjectModule::identifier).toList();
+    }
+
+    private static ProjectModule module(String identifier, long... sizes) {
+        final Path directory = Path.of(identifier);
+        final List<LazyInputFile> files = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            files.add(
+                    new LazyInputFile(
+                            directory,
+                            directory.resolve("file" + i + ".py"),
+                            sizes[i],
+                            0,
+                            UTF_8,
+                            "python"));
+        }
+        return new ProjectModule(identifier, directory, files, List.of());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+import org.pqca.indexing.python.PythonIndexService;
+
+class SourceArchiveTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void javaModules() throws IOException, ClientDisconnected {
+        final Map<String, String> entries = new TreeMap<>();
+        entries.put("core/pom.xml", "<project/>");
+        entries.put("core/src/main/java/Core.java", "class Core {}");
+        entries.put("core/src/test/java/CoreTest.java", "class CoreTest {}");
+        entries.put("api/build.gradle", "");
+        entries.put("api/src/Api.java", "class Api {}");
+        final Path zip = zip("project.zip", entries);
+
+        final Path target = tempDir.resolve("project");
+        try (SourceArchive archive = SourceArchive.open(zip)) {
+            final List<ProjectModule> projectModules =
+                    new JavaIndexService(target.toFile()).indexArchive(archive);
+            assertThat(projectModules).hasSize(2);
+            assertThat(projectModules.getFirst().identifier()).isEqualTo("api");
+            assertThat(projectModules.getLast().identifier()).isEqualTo("core");
+            final LazyInputFile core = projectModules.getLast().lazyInputFileList().getFirst();
+            assertThat(projectModules.getLast().lazyInputFileList()).hasSize(1);
+            assertThat(core.path()).isEqualTo(target.resolve("core/src/main/java/Core.java"));
+            assertThat(core.load().contents()).isEqualTo("class Core {}");
+        }
+        assertThat(Files.exists(target)).isFalse();
+    }
+
+    @Test
+    void wheel() throws IOException, ClientDisconnected {
+        final Map<String, String> entries = new TreeMap<>();
+        entries.put("crypto_utils/__init__.py", "");
+        entries.put("crypto_utils/hashing.py", "import hashlib\n");
+        entries.put("crypto_utils-1.0.dist-info/METADATA", "Name: crypto-utils\n");
+        final Path wheel = zip("crypto_utils-1.0-py3-none-any.whl", entries);
+
+        try (SourceArchive archive = SourceArchive.open(wheel)) {
+            final List<ProjectModule> projectModules =
+                    new PythonIndexService(tempDir.resolve("wheel").toFile()).indexArchive(archive);
+            assertThat(projectModules).hasSize(1);
+            assertThat(projectModules.getFirst().inputFileList()).hasSize(2);
+            assertThat(projectModules.getFirst().inputFileList().getLast().contents())
+                    .isEqualTo("import hashlib\n");
+        }
+    }
+
+    private Path zip(String name, Map<String, String> entries) throws IOException {
+        final Path zip = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(zip);
+                ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(entry.getValue().getBytes(UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
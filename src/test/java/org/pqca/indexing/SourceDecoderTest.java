@@ -0,0 +1,116 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceDecoderTest {
+    private static final String SOURCE = "# Schlüssel\nkey = Fernet.generate_key()\n";
+
+    @TempDir Path tempDir;
+
+    @Test
+    void utf8() throws IOException {
+        final SourceDecoder decoder = new SourceDecoder();
+        final DecodedSource source =
+                decoder.decode(write("utf8.py", SOURCE.getBytes(UTF_8)), UTF_8);
+        assertThat(source.contents()).isEqualTo(SOURCE);
+        assertThat(source.charset()).isEqualTo(UTF_8);
+        assertThat(decoder.getNumberOfFallbackDecodedFiles()).isEqualTo(0);
+    }
+
+    @Test
+    void byteOrderMarks() throws IOException {
+        final SourceDecoder decoder = new SourceDecoder();
+        final byte[] utf8 = withBom(SOURCE.getBytes(UTF_8), 0xEF, 0xBB, 0xBF);
+        assertThat(decoder.decode(write("bom8.py", utf8), UTF_8).contents()).isEqualTo(SOURCE);
+
+        final byte[] utf16 = withBom(SOURCE.getBytes(UTF_16LE), 0xFF, 0xFE);
+        final DecodedSource source = decoder.decode(write("bom16.py", utf16), UTF_8);
+        assertThat(source.contents()).isEqualTo(SOURCE);
+        assertThat(source.charset()).isEqualTo(UTF_16LE);
+        assertThat(decoder.getNumberOfFallbackDecodedFiles()).isEqualTo(0);
+    }
+
+    @Test
+    void utf16WithoutBom() throws IOException {
+        final DecodedSource source =
+                new SourceDecoder().decode(write("be.py", SOURCE.getBytes(UTF_16BE)), UTF_8);
+        assertThat(source.contents()).isEqualTo(SOURCE);
+        assertThat(source.charset()).isEqualTo(UTF_16BE);
+    }
+
+    @Test
+    void latin1Fallback() throws IOException {
+        final SourceDecoder decoder = new SourceDecoder();
+        final Path file = write("latin1.py", SOURCE.getBytes(ISO_8859_1));
+        final DecodedSource source = decoder.decode(file, UTF_8);
+        assertThat(source.contents()).isEqualTo(SOURCE);
+        assertThat(source.charset()).isEqualTo(ISO_8859_1);
+        decoder.decode(file, UTF_8);
+        assertThat(decoder.getNumberOfFallbackDecodedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void mappedFile() throws IOException {
+        final String large = SOURCE.repeat(64 * 1024);
+        final DecodedSource source =
+                new SourceDecoder().decode(write("large.py", large.getBytes(UTF_8)), UTF_8);
+        assertThat(source.contents()).isEqualTo(large);
+    }
+
+    @Test
+    void utf8Validation() {
+        assertThat(valid(0x61, 0xC3, 0xBC, 0xE2, 0x82, 0xAC, 0xF0, 0x9F, 0x94, 0x91)).isTrue();
+        assertThat(valid(0xC0, 0xAF)).isFalse(); // overlong '/'
+        assertThat(valid(0xE0, 0x80, 0xAF)).isFalse(); // overlong '/'
+        assertThat(valid(0xED, 0xA0, 0x80)).isFalse(); // surrogate
+        assertThat(valid(0xF4, 0x90, 0x80, 0x80)).isFalse(); // above U+10FFFF
+        assertThat(valid(0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0xE2, 0x82)).isFalse();
+    }
+
+    private static boolean valid(int... values) {
+        return SourceDecoder.isValidUtf8(ByteBuffer.wrap(withBom(new byte[0], values)));
+    }
+
+    private static byte[] withBom(byte[] contents, int... bom) {
+        final byte[] bytes = new byte[bom.length + contents.length];
+        for (int i = 0; i < bom.length; i++) {
+            bytes[i] = (byte) bom[i];
+        }
+        System.arraycopy(contents, 0, bytes, bom.length, contents.length);
+        return bytes;
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        return Files.write(tempDir.resolve(name), bytes);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.java.JavaIndexService;
+import org.pqca.indexing.python.PythonIndexService;
+
+class SourceTarballTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void sdist() throws IOException, ClientDisconnected {
+        final String longDirectory = "pkg-1.0/src/" + "nested/".repeat(20);
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "pkg-1.0/", '5', new byte[0]);
+        entry(tar, "pkg-1.0/pyproject.toml", '0', "[project]\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/src/pkg/keys.py", '0', "import rsa\n".getBytes(UTF_8));
+        // GNU long name for the following entry
+        entry(tar, "././@LongLink", 'L', (longDirectory + "deep.py\0").getBytes(UTF_8));
+        entry(tar, "truncated", '0', "import os\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/src/pkg/link.py", '2', new byte[0]);
+        tar.write(new byte[1024]);
+        final Path archive = tempDir.resolve("pkg-1.0.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(tar.toByteArray());
+        }
+
+        final Path target = tempDir.resolve("sdist");
+        try (SourceTarball tarball = SourceTarball.read(archive)) {
+            final List<ProjectModule> projectModules =
+                    new PythonIndexService(target.toFile()).indexTarball(tarball);
+            assertThat(projectModules).hasSize(1);
+            assertThat(projectModules.getFirst().identifier()).isEqualTo("pkg-1.0");
+            final List<LazyInputFile> files = projectModules.getFirst().lazyInputFileList();
+            assertThat(files).hasSize(2);
+            assertThat(files.getFirst().path())
+                    .isEqualTo(target.resolve(longDirectory + "deep.py"));
+            assertThat(files.getFirst().load().contents()).isEqualTo("import os\n");
+            assertThat(files.getLast().load().contents()).isEqualTo("import rsa\n");
+            assertThat(files.getLast().lastModified()).isEqualTo(1700000000000L);
+
+            // the same tarball can be indexed for another language
+            assertThat(new JavaIndexService(target.toFile()).indexTarball(tarball)).isEmpty();
+        }
+        assertThat(Files.exists(target)).isFalse();
+    }
+
+    @Test
+    void entriesOutsideTheArchive() throws IOException, ClientDisconnected {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "pkg-1.0/pyproject.toml", '0', "[project]\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/keys.py", '0', "import rsa\n".getBytes(UTF_8));
+        entry(tar, "../../escaped.py", '0', "import os\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/../../up.py", '0', "import os\n".getBytes(UTF_8));
+        entry(tar, "/absolute.py", '0', "import os\n".getBytes(UTF_8));
+        entry(tar, "../outside/", '5', new byte[0]);
+        tar.write(new byte[1024]);
+        final Path archive = tempDir.resolve("pkg-1.0.tar");
+        Files.write(archive, tar.toByteArray());
+
+        final Path target = tempDir.resolve("sdist");
+        try (SourceTarball tarball = SourceTarball.read(archive)) {
+            final List<ProjectModule> projectModules =
+                    new PythonIndexService(target.toFile()).indexTarball(tarball);
+            assertThat(projectModules).hasSize(1);
+            final List<LazyInputFile> files = projectModules.getFirst().lazyInputFileList();
+            assertThat(files).hasSize(1);
+            assertThat(files.getFirst().path()).isEqualTo(target.resolve("pkg-1.0/keys.py"));
+        }
+    }
+
+    @Test
+    void dependencyDirectoriesAndIgnoredFiles() throws IOException, ClientDisconnected {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        entry(tar, "pkg-1.0/pyproject.toml", '0', "[project]\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/.gitignore", '0', "build/\n*_pb2.py\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/keys.py", '0', "import rsa\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/keys_pb2.py", '0', "import os\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/build/lib/keys.py", '0', "import rsa\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/venv/pyvenv.cfg", '0', "home = /usr/bin\n".getBytes(UTF_8));
+        entry(tar, "pkg-1.0/venv/lib/site.py", '0', "import os\n".getBytes(UTF_8));
+        tar.write(new byte[1024]);
+        final Path archive = tempDir.resolve("pkg-1.0.tar");
+        Files.write(archive, tar.toByteArray());
+
+        final Path target = tempDir.resolve("sdist");
+        try (SourceTarball tarball = SourceTarball.read(archive)) {
+            final PythonIndexService indexService = new PythonIndexService(target.toFile());
+            indexService.setRespectIgnoreFiles(true);
+            final List<ProjectModule> projectModules = indexService.indexTarball(tarball);
+            assertThat(projectModules).hasSize(1);
+            final List<LazyInputFile> files = projectModules.getFirst().lazyInputFileList();
+            assertThat(files).hasSize(1);
+            assertThat(files.getFirst().path()).isEqualTo(target.resolve("pkg-1.0/keys.py"));
+            assertThat(indexService.getSkippedDirectories())
+                    .containsExactly(target.resolve("pkg-1.0/venv"));
+        }
+    }
+
+    // A ustar header followed by the padded content
+    private static void entry(ByteArrayOutputStream tar, String name, char type, byte[] content)
+            throws IOException {
+        final byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", content.length));
+        put(header, 136, String.format("%011o", 1700000000L));
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        put(header, 148, "        ");
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        put(header, 148, String.format("%06o\0", checksum));
+        tar.write(header);
+        tar.write(content);
+        tar.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        final byte[] bytes = value.getBytes(UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.pqca.errors.ClientDisconnected;
+import org.pqca.indexing.BuildArtifacts;
 import org.pqca.indexing.ProjectModule;
 import org.pqca.indexing.java.JavaIndexService;
 import org.pqca.scanning.java.JavaScannerService;
@@ -157,6 +158,44 @@ class JavaScannerServiceTest {
                 .isTrue();
     }
 
+    @Test
+    void testParallel() throws ClientDisconnected {
+        final File projectDirectory = new File("src/test/testdata/java/keycloak");
+        final JavaIndexService javaIndexService = new JavaIndexService(projectDirectory);
+        final List<ProjectModule> projectModules = javaIndexService.index(null);
+        assertThat(projectModules).hasSizeGreaterThan(1);
+
+        final JavaScannerService serialScannerService = new JavaScannerService(projectDirectory);
+        serialScannerService.addJavaDependencyJar("src/test/resources/java/scan");
+        serialScannerService.setRequireBuild(false);
+        final ScanResultDTO serial = serialScannerService.scan(projectModules);
+
+        final JavaScannerService javaScannerService = new JavaScannerService(projectDirectory);
+        javaScannerService.addJavaDependencyJar("src/test/resources/java/scan");
+        javaScannerService.setRequireBuild(false);
+        javaScannerService.setParallelism(2);
+        ScanResultDTO scanResult = javaScannerService.scan(projectModules);
+        assertThat(scanResult.numberOfScannedLines()).isEqualTo(serial.numberOfScannedLines());
+        assertThat(ScannerServiceTest.findings(scanResult.cbom()))
+                .containsExactlyInAnyOrderElementsOf(
+                        ScannerServiceTest.findings(serial.cbom()));
+
+        AssertableCBOM assertableCBOM = new AssertableCBOM(scanResult.cbom());
+        assertableCBOM.hasNumberOfDetections(14);
+        assertThat(
+                        assertableCBOM.hasDetectionWithNameAt(
+                                "AES",
+                                "src/test/testdata/java/keycloak/crypto/default/src/main/java/org/keycloak/crypto/def/AesKeyWrapAlgorithmProvider.java",
+                                38))
+                .isTrue();
+        assertThat(
+                        assertableCBOM.hasDetectionWithNameAt(
+                                "TLS",
+                                "src/test/testdata/java/keycloak/services/src/main/java/org/keycloak/connections/httpclient/HttpClientBuilder.java",
+                                234))
+                .isTrue();
+    }
+
     @Test
     void testRequireBuildException() throws ClientDisconnected {
         final File projectDirectory = new File("src/test/testdata/java/plain");
@@ -172,6 +211,44 @@ class JavaScannerServiceTest {
                         "No Java build artifacts found. Project must be built prior to scanning");
     }
 
+    @Test
+    void testRequireBuildBeforeScanning() throws ClientDisconnected {
+        final File projectDirectory = new File("src/test/testdata/java/plain");
+        final JavaIndexService javaIndexService = new JavaIndexService(projectDirectory);
+
+        final ProjectModule unbuilt = javaIndexService.index(null).getFirst();
+        final ProjectModule built =
+                new ProjectModule(
+                        unbuilt.identifier(),
+                        unbuilt.packagePath(),
+                        unbuilt.lazyInputFileList(),
+                        List.of(),
+                        new BuildArtifacts(List.of(unbuilt.packagePath()), List.of()));
+        final ProjectModule deleted =
+                new ProjectModule(
+                        "deleted",
+                        unbuilt.packagePath(),
+                        List.of(),
+                        List.of(unbuilt.packagePath().resolve("Deleted.java")));
+        final JavaScannerService javaScannerService = new JavaScannerService(projectDirectory);
+        javaScannerService.setRequireBuild(true);
+
+        // a project that was not built leaves no findings behind
+        assertThatIllegalStateException()
+                .isThrownBy(() -> javaScannerService.scan(List.of(unbuilt)));
+        // modules that only list deleted files are not scanned and need no build
+        ScanResultDTO scanResult = javaScannerService.scan(List.of(deleted));
+        assertThat(scanResult.numberOfScannedFiles()).isZero();
+        AssertableCBOM assertableCBOM = new AssertableCBOM(scanResult.cbom());
+        assertableCBOM.hasNumberOfDetections(0);
+
+        // a project is built if any of its modules is
+        scanResult = javaScannerService.scan(List.of(unbuilt, built));
+        assertThat(scanResult.numberOfScannedFiles()).isEqualTo(2);
+        assertableCBOM = new AssertableCBOM(scanResult.cbom());
+        assertableCBOM.hasNumberOfDetections(1);
+    }
+
     @Test
     void testRequireBuildTrue() throws ClientDisconnected {
         final File projectDirectory = new File("src/test/testdata/java/plain");
@@ -0,0 +1,337 @@
+/*
+ * CBOMkit-lib
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pqca.scanning.java.MavenClasspathResolver;
+
+class MavenClasspathResolverTest {
+
+    @Test
+    void resolvesFromLocalRepository(@TempDir Path directory) throws IOException {
+        final Path repository = directory.resolve("repository");
+        final Path project = directory.resolve("project");
+        writeProject(project);
+        writeRepository(repository);
+
+        final MavenClasspathResolver resolver = new MavenClasspathResolver(repository);
+        assertThat(resolver.resolve(project.resolve("app")))
+                .containsExactly(
+                        jar(repository, "lib-a", "1.1"),
+                        jar(repository, "lib-p", "1.0"),
+                        jar(repository, "lib-b", "2.0"),
+                        jar(repository, "lib-c", "3.0"));
+        assertThat(resolver.resolve(project.resolve("missing"))).isEmpty();
+    }
+
+    @Test
+    void cachesByPomContent(@TempDir Path directory) throws IOException {
+        final Path repository = directory.resolve("repository");
+        final Path project = directory.resolve("project");
+        final Path cacheFile = directory.resolve("cache/classpath.bin");
+        writeProject(project);
+        writeRepository(repository);
+
+        final MavenClasspathResolver first = new MavenClasspathResolver(repository);
+        first.setCacheFile(cacheFile);
+        final List<Path> classpath = first.resolve(project.resolve("app"));
+        first.writeCache();
+        assertThat(Files.isRegularFile(cacheFile)).isTrue();
+
+        // without its pom, lib-a would have no transitive dependencies: the cache was used
+        Files.delete(repository.resolve("org/example/lib-a/1.1/lib-a-1.1.pom"));
+        final MavenClasspathResolver second = new MavenClasspathResolver(repository);
+        second.setCacheFile(cacheFile);
+        assertThat(second.resolve(project.resolve("app"))).isEqualTo(classpath);
+
+        // a changed parent pom invalidates the entry
+        write(
+                project.resolve("pom.xml"),
+                Files.readString(project.resolve("pom.xml")).replace("1.1", "1.0"));
+        write(repository.resolve("org/example/lib-a/1.0/lib-a-1.0.jar"), "");
+        assertThat(second.resolve(project.resolve("app")))
+                .containsExactly(jar(repository, "lib-a", "1.0"), jar(repository, "lib-p", "1.0"));
+    }
+
+    @Test
+    void rootManagedScope(@TempDir Path directory) throws IOException {
+        final Path repository = directory.resolve("repository");
+        final Path module = directory.resolve("module");
+        writeRepository(repository);
+        write(
+                module.resolve("pom.xml"),
+                """
+                <project>
+                  <groupId>com.acme</groupId>
+                  <artifactId>module</artifactId>
+                  <version>1.0</version>
+                  <dependencyManagement>
+                    <dependencies>
+                      <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib-c</artifactId>
+                        <version>2.0</version>
+                        <scope>test</scope>
+                      </dependency>
+                    </dependencies>
+                  </dependencyManagement>
+                  <dependencies>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-a</artifactId>
+                      <version>1.1</version>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """);
+
+        // lib-c is a compile dependency of lib-a, but test scoped by the module
+        assertThat(new MavenClasspathResolver(repository).resolve(module))
+                .containsExactly(
+                        jar(repository, "lib-a", "1.1"),
+                        jar(repository, "lib-b", "1.5"),
+                        jar(repository, "lib-x", "1.0"));
+    }
+
+    @Test
+    void missingParentInvalidatesCache(@TempDir Path directory) throws IOException {
+        final Path repository = directory.resolve("repository");
+        final Path module = directory.resolve("module");
+        final Path cacheFile = directory.resolve("classpath.bin");
+        writeRepository(repository);
+        write(
+                module.resolve("pom.xml"),
+                """
+                <project>
+                  <parent>
+                    <groupId>org.example</groupId>
+                    <artifactId>parent</artifactId>
+                    <version>1.0</version>
+                    <relativePath/>
+                  </parent>
+                  <artifactId>module</artifactId>
+                  <dependencies>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-p</artifactId>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """);
+
+        final MavenClasspathResolver first = new MavenClasspathResolver(repository);
+        first.setCacheFile(cacheFile);
+        assertThat(first.resolve(module)).isEmpty();
+        first.writeCache();
+
+        // the parent that manages the version of lib-p is installed later
+        write(
+                repository.resolve("org/example/parent/1.0/parent-1.0.pom"),
+                """
+                <project>
+                  <groupId>org.example</groupId>
+                  <artifactId>parent</artifactId>
+                  <version>1.0</version>
+                  <dependencyManagement>
+                    <dependencies>
+                      <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib-p</artifactId>
+                        <version>1.0</version>
+                      </dependency>
+                    </dependencies>
+                  </dependencyManagement>
+                </project>
+                """);
+        final MavenClasspathResolver second = new MavenClasspathResolver(repository);
+        second.setCacheFile(cacheFile);
+        assertThat(second.resolve(module)).containsExactly(jar(repository, "lib-p", "1.0"));
+    }
+
+    private static void writeProject(Path project) throws IOException {
+        write(
+                project.resolve("pom.xml"),
+                """
+                <project>
+                  <groupId>com.acme</groupId>
+                  <artifactId>root</artifactId>
+                  <version>1.0</version>
+                  <packaging>pom</packaging>
+                  <properties>
+                    <lib.version>1.1</lib.version>
+                  </properties>
+                  <dependencyManagement>
+                    <dependencies>
+                      <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>bom</artifactId>
+                        <version>1.0</version>
+                        <type>pom</type>
+                        <scope>import</scope>
+                      </dependency>
+                      <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib-c</artifactId>
+                        <version>3.0</version>
+                      </dependency>
+                    </dependencies>
+                  </dependencyManagement>
+                </project>
+                """);
+        write(
+                project.resolve("app/pom.xml"),
+                """
+                <project>
+                  <parent>
+                    <groupId>com.acme</groupId>
+                    <artifactId>root</artifactId>
+                    <version>1.0</version>
+                  </parent>
+                  <artifactId>app</artifactId>
+                  <dependencies>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-a</artifactId>
+                      <version>${lib.version}</version>
+                      <exclusions>
+                        <exclusion>
+                          <groupId>org.example</groupId>
+                          <artifactId>lib-x</artifactId>
+                        </exclusion>
+                      </exclusions>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-p</artifactId>
+                      <version>1.0</version>
+                      <scope>provided</scope>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-t</artifactId>
+                      <version>1.0</version>
+                      <scope>test</scope>
+                    </dependency>
+                  </dependencies>
+                  <build>
+                    <plugins>
+                      <plugin>
+                        <artifactId>some-plugin</artifactId>
+                        <dependencies>
+                          <dependency>
+                            <groupId>org.example</groupId>
+                            <artifactId>lib-o</artifactId>
+                            <version>1.0</version>
+                          </dependency>
+                        </dependencies>
+                      </plugin>
+                    </plugins>
+                  </build>
+                </project>
+                """);
+    }
+
+    private static void writeRepository(Path repository) throws IOException {
+        write(
+                repository.resolve("org/example/bom/1.0/bom-1.0.pom"),
+                """
+                <project>
+                  <groupId>org.example</groupId>
+                  <artifactId>bom</artifactId>
+                  <version>1.0</version>
+                  <dependencyManagement>
+                    <dependencies>
+                      <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib-b</artifactId>
+                        <version>2.0</version>
+                      </dependency>
+                    </dependencies>
+                  </dependencyManagement>
+                </project>
+                """);
+        // lib-b and lib-c are managed by the module, lib-x is excluded and lib-o optional
+        write(
+                repository.resolve("org/example/lib-a/1.1/lib-a-1.1.pom"),
+                """
+                <project>
+                  <groupId>org.example</groupId>
+                  <artifactId>lib-a</artifactId>
+                  <version>1.1</version>
+                  <dependencies>
+                    <dependency>
+                      <groupId>${project.groupId}</groupId>
+                      <artifactId>lib-b</artifactId>
+                      <version>1.5</version>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-c</artifactId>
+                      <version>2.0</version>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-x</artifactId>
+                      <version>1.0</version>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.example</groupId>
+                      <artifactId>lib-o</artifactId>
+                      <version>1.0</version>
+                      <optional>true</optional>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """);
+        for (String jar :
+                List.of(
+                        "lib-a/1.1/lib-a-1.1.jar",
+                        "lib-b/1.5/lib-b-1.5.jar",
+                        "lib-b/2.0/lib-b-2.0.jar",
+                        "lib-c/3.0/lib-c-3.0.jar",
+                        "lib-p/1.0/lib-p-1.0.jar",
+                        "lib-t/1.0/lib-t-1.0.jar",
+                        "lib-x/1.0/lib-x-1.0.jar",
+                        "lib-o/1.0/lib-o-1.0.jar")) {
+            write(repository.resolve("org/example").resolve(jar), "");
+        }
+    }
+
+    private static Path jar(Path repository, String artifactId, String version) {
+        return repository
+                .resolve("org/example")
+                .resolve(artifactId)
+                .resolve(version)
+                .resolve(artifactId + "-" + version + ".jar");
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, UTF_8);
+    }
+}
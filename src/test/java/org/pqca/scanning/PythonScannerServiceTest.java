@@ -20,10 +20,19 @@
 package org.pqca.scanning;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.pqca.errors.ClientDisconnected;
 import org.pqca.indexing.ProjectModule;
 import org.pqca.indexing.python.PythonIndexService;
@@ -77,4 +86,82 @@ class PythonScannerServiceTest {
                                 "secret-key", "src/test/testdata/python/pyca/generate_key.py", 4))
                 .isTrue();
     }
+
+    @Test
+    void duplicateFiles() throws ClientDisconnected {
+        final File projectDirectory = new File("src/test/testdata/python/vendored");
+        final PythonIndexService pythonIndexService = new PythonIndexService(projectDirectory);
+        pythonIndexService.setFingerprintFiles(true);
+        final List<ProjectModule> projectModules = pythonIndexService.index(null);
+        assertThat(projectModules).hasSize(1);
+        assertThat(projectModules.getFirst().inputFileList()).hasSize(2);
+
+        final ScanResultDTO scanResult =
+                new PythonScannerService(projectDirectory).scan(projectModules);
+        assertThat(scanResult.numberOfScannedFiles()).isEqualTo(2);
+        assertThat(scanResult.numberOfDuplicateFiles()).isEqualTo(1);
+
+        final AssertableCBOM assertableCBOM = new AssertableCBOM(scanResult.cbom());
+        for (String location :
+                List.of(
+                        "src/test/testdata/python/vendored/app/generate_key.py",
+                        "src/test/testdata/python/vendored/lib/generate_key.py")) {
+            assertThat(assertableCBOM.hasDetectionWithNameAt("SHA256", location, 4)).isTrue();
+            assertThat(assertableCBOM.hasDetectionWithNameAt("Fernet", location, 4)).isTrue();
+        }
+    }
+
+    @Test
+    void parallel() throws ClientDisconnected {
+        // several modules, files of both are scanned at the same time
+        final File projectDirectory = new File("src/test/testdata/python");
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        for (String module : List.of("pyca", "vendored")) {
+            projectModules.addAll(
+                    new PythonIndexService(new File(projectDirectory, module)).index(null));
+        }
+        assertThat(projectModules).hasSizeGreaterThan(1);
+        final ScanResultDTO serial =
+                new PythonScannerService(projectDirectory).scan(projectModules);
+
+        final PythonScannerService pythonScannerService =
+                new PythonScannerService(projectDirectory);
+        pythonScannerService.setParallelism(4);
+        final ScanResultDTO scanResult = pythonScannerService.scan(projectModules);
+        assertThat(scanResult.numberOfScannedLines()).isEqualTo(serial.numberOfScannedLines());
+        assertThat(ScannerServiceTest.findings(scanResult.cbom()))
+                .containsExactlyInAnyOrderElementsOf(
+                        ScannerServiceTest.findings(serial.cbom()));
+
+        final AssertableCBOM assertableCBOM = new AssertableCBOM(scanResult.cbom());
+        assertThat(
+                        assertableCBOM.hasDetectionWithNameAt(
+                                "Fernet", "src/test/testdata/python/pyca/generate_key.py", 4))
+                .isTrue();
+        assertThat(
+                        assertableCBOM.hasDetectionWithNameAt(
+                                "Fernet",
+                                "src/test/testdata/python/vendored/lib/generate_key.py",
+                                4))
+                .isTrue();
+    }
+
+    @Test
+    void otherFileSystems(@TempDir Path tempDir) throws ClientDisconnected, IOException {
+        final Path zip = tempDir.resolve("sources.zip");
+        try (FileSystem fileSystem = FileSystems.newFileSystem(zip, Map.of("create", "true"))) {
+            Files.writeString(fileSystem.getPath("/keys.py"), "import rsa\n");
+        }
+        try (FileSystem fileSystem = FileSystems.newFileSystem(zip)) {
+            final List<ProjectModule> projectModules =
+                    new PythonIndexService(fileSystem.getPath("/")).index(null);
+            assertThat(projectModules).hasSize(1);
+
+            // the sonar frontends need files on the default file system
+            final PythonScannerService pythonScannerService =
+                    new PythonScannerService(tempDir.toFile());
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> pythonScannerService.scan(projectModules));
+        }
+    }
 }
@@ -21,7 +21,10 @@ package org.pqca.scanning;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.cyclonedx.model.Component;
@@ -79,4 +82,24 @@ public class ScannerServiceTest {
         deduplicated = scannerService.deduplicateFindings(c);
         assertThat(deduplicated).isEmpty();
     }
+
+    // name, location and line of every occurrence
+    @Nonnull
+    static List<String> findings(@Nullable CBOM cbom) {
+        final List<String> findings = new ArrayList<>();
+        if (cbom == null || cbom.cycloneDXbom().getComponents() == null) {
+            return findings;
+        }
+        for (Component component : cbom.cycloneDXbom().getComponents()) {
+            for (Occurrence occurrence : component.getEvidence().getOccurrences()) {
+                findings.add(
+                        component.getName()
+                                + " "
+                                + occurrence.getLocation()
+                                + ":"
+                                + occurrence.getLine());
+            }
+        }
+        return findings;
+    }
 }